@@ -0,0 +1,108 @@
+package com.keyauth.bungee;
+
+import com.keyauth.proxy.ProxyMessage;
+import com.keyauth.proxy.ProxyVerifier;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.api.connection.Server;
+import net.md_5.bungee.api.event.PlayerDisconnectEvent;
+import net.md_5.bungee.api.event.PluginMessageEvent;
+import net.md_5.bungee.api.event.ServerSwitchEvent;
+import net.md_5.bungee.api.plugin.Listener;
+import net.md_5.bungee.api.plugin.Plugin;
+import net.md_5.bungee.config.Configuration;
+import net.md_5.bungee.config.ConfigurationProvider;
+import net.md_5.bungee.config.YamlConfiguration;
+import net.md_5.bungee.event.EventHandler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+/**
+ * BungeeCord 一侧的群组服验证（入口见 bungee.yml，与子服插件打包在同一个 jar 中）。
+ * 玩家在任一子服输入密钥后记为已验证，之后连接到其他子服时向该子服发送签名的断言，不再重复验证。
+ */
+public class KeyAuthBungee extends Plugin implements Listener {
+
+    private ProxyVerifier verifier;
+
+    @Override
+    public void onEnable() {
+        Configuration config;
+        try {
+            config = loadConfig();
+        } catch (IOException e) {
+            getLogger().warning("无法读取配置文件: " + e.getMessage());
+            return;
+        }
+
+        try {
+            verifier = new ProxyVerifier(config.getString("secret", ""),
+                    config.getLong("session-minutes", 0) * 60_000L,
+                    config.getLong("max-message-age-seconds", 30) * 1000L);
+        } catch (IllegalArgumentException e) {
+            getLogger().warning("群组服验证未启用: " + e.getMessage() + "，请在 config.yml 中设置与各子服相同的 secret");
+            return;
+        }
+
+        getProxy().registerChannel(ProxyMessage.CHANNEL);
+        getProxy().getPluginManager().registerListener(this, this);
+        getLogger().info("群组服验证已启用");
+    }
+
+    @Override
+    public void onDisable() {
+        if (verifier != null) {
+            getProxy().unregisterChannel(ProxyMessage.CHANNEL);
+            verifier = null;
+        }
+    }
+
+    // 该频道的消息一律不转发：子服发来的交给 ProxyVerifier，客户端伪造的直接丢弃
+    @EventHandler
+    public void onPluginMessage(PluginMessageEvent event) {
+        ProxyVerifier current = verifier;
+        if (current == null || !current.isProtectedChannel(event.getTag())) return;
+
+        event.setCancelled(true);
+        if (event.getSender() instanceof Server && event.getReceiver() instanceof ProxiedPlayer) {
+            ProxiedPlayer player = (ProxiedPlayer) event.getReceiver();
+            current.onBackendMessage(event.getTag(), player.getUniqueId(), event.getData());
+        }
+    }
+
+    // 玩家进入子服后发送断言，子服在 proxy.grace-ticks 内收到即视为已验证
+    @EventHandler
+    public void onServerSwitch(ServerSwitchEvent event) {
+        ProxyVerifier current = verifier;
+        if (current == null) return;
+
+        ProxiedPlayer player = event.getPlayer();
+        byte[] assertion = current.onServerConnected(player.getUniqueId());
+        Server server = player.getServer();
+        if (assertion != null && server != null) {
+            server.sendData(ProxyMessage.CHANNEL, assertion);
+        }
+    }
+
+    @EventHandler
+    public void onDisconnect(PlayerDisconnectEvent event) {
+        ProxyVerifier current = verifier;
+        if (current != null) {
+            current.onDisconnect(event.getPlayer().getUniqueId());
+        }
+    }
+
+    // 代理端单独打包，jar 根目录的 config.yml 即代理端默认配置
+    private Configuration loadConfig() throws IOException {
+        File file = new File(getDataFolder(), "config.yml");
+        if (!file.exists()) {
+            Files.createDirectories(getDataFolder().toPath());
+            try (InputStream in = getResourceAsStream("config.yml")) {
+                Files.copy(in, file.toPath());
+            }
+        }
+        return ConfigurationProvider.getProvider(YamlConfiguration.class).load(file);
+    }
+}
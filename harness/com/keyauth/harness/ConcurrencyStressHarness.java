@@ -0,0 +1,454 @@
+package com.keyauth.harness;
+
+import com.keyauth.KeyAuthPlugin;
+import com.keyauth.api.KeyAuthAPI;
+import com.keyauth.api.KeyAuthProvider;
+import com.keyauth.api.StatsFormat;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * 并发压力测试：调用线程扮演主线程不断改变验证状态，同时由多个读取线程反复读取，
+ * 检查竞态下的不变式。覆盖验证 vs 密钥更新、验证 vs 退出、统计记录 vs 清空、配置重载 vs 读取。
+ *
+ * 运行方式（harness 目录不打包进插件，先用 javac -cp KeyAuth.jar:spigot-api.jar -d harness-out 编译；
+ * classpath 需要包含编译结果、插件、resources 目录和 Spigot API）：
+ * java -cp harness-out:KeyAuth.jar:spigot-api.jar com.keyauth.harness.ConcurrencyStressHarness --seconds 10 --readers 4
+ */
+public class ConcurrencyStressHarness {
+
+    private static final byte[] ADDRESS = {10, 0, 1, 1};
+    private static final int BATCH = 8;
+
+    private final Options options;
+    private StubServer server;
+    private int nextPlayerId;
+    private int failures;
+
+    public ConcurrencyStressHarness(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        ConcurrencyStressHarness harness = new ConcurrencyStressHarness(Options.parse(args));
+        harness.run();
+        System.exit(harness.failures == 0 ? 0 : 1);
+    }
+
+    public void run() throws Exception {
+        server = StubServer.start(options.verbose ? Level.INFO : Level.WARNING);
+
+        if (options.selected("verify-rotate")) verifyVsRotate();
+        if (options.selected("verify-quit")) verifyVsQuit();
+        if (options.selected("stats-clear")) statsVsClear();
+        if (options.selected("reload-read")) reloadVsRead();
+
+        server.getScheduler().shutdown();
+        System.out.println(failures == 0 ? "全部通过" : failures + " 项失败");
+    }
+
+    // 一半玩家在密钥更新前提交旧密钥、更新后才完成校验，另一半用新密钥验证
+    private void verifyVsRotate() throws Exception {
+        KeyAuthPlugin plugin = load("verify-rotate", options.hash, new HashMap<>());
+        KeyAuthAPI api = KeyAuthProvider.get();
+        List<StubPlayer> online = new CopyOnWriteArrayList<>();
+        ThreadLocal<long[]> lastSeen = ThreadLocal.withInitial(() -> new long[1]);
+
+        Readers readers = new Readers(options.readers, () -> {
+            long next = api.getNextUpdateTime();
+            long[] last = lastSeen.get();
+            if (next <= 0) return "下次更新时间为 " + next;
+            if (next < last[0]) return "下次更新时间倒退: " + last[0] + " -> " + next;
+            last[0] = next;
+            for (StubPlayer player : online) {
+                api.isVerified(player.getUniqueId());
+            }
+            return null;
+        });
+
+        long iterations = 0;
+        long violations = 0;
+        long deadline = deadline();
+        while (System.nanoTime() < deadline) {
+            List<StubPlayer> batch = joinBatch();
+            online.addAll(batch);
+
+            String oldKey = plugin.getCurrentKey();
+            for (int i = 0; i < BATCH / 2; i++) {
+                server.command(batch.get(i), "/key " + oldKey);
+            }
+            invoke(plugin, "updateKey");
+            invoke(plugin, "calculateNextUpdateTime");
+            drain(plugin);
+            for (int i = 0; i < BATCH / 2; i++) {
+                if (api.isVerified(batch.get(i).getUniqueId())) violations++;
+            }
+
+            String newKey = plugin.getCurrentKey();
+            for (int i = BATCH / 2; i < BATCH; i++) {
+                server.command(batch.get(i), "/key " + newKey);
+            }
+            drain(plugin);
+            for (int i = BATCH / 2; i < BATCH; i++) {
+                if (!api.isVerified(batch.get(i).getUniqueId())) violations++;
+            }
+
+            quitAll(batch);
+            online.removeAll(batch);
+            iterations++;
+        }
+
+        readers.stop();
+        report("验证 vs 密钥更新", iterations, readers, violations, "旧密钥在更新后仍然有效或新密钥验证失败");
+        server.unloadPlugin();
+    }
+
+    // 哈希校验在校验线程上完成，结果回到主线程前玩家可能已经退出
+    private void verifyVsQuit() throws Exception {
+        KeyAuthPlugin plugin = load("verify-quit", true, new HashMap<>());
+        KeyAuthAPI api = KeyAuthProvider.get();
+        List<UUID> departed = new CopyOnWriteArrayList<>();
+
+        Readers readers = new Readers(options.readers, () -> {
+            for (UUID playerId : departed) {
+                api.isVerified(playerId);
+            }
+            return null;
+        });
+
+        long iterations = 0;
+        long violations = 0;
+        long deadline = deadline();
+        while (System.nanoTime() < deadline) {
+            List<StubPlayer> batch = joinBatch();
+            String key = plugin.getCurrentKey();
+            for (StubPlayer player : batch) {
+                server.command(player, "/key " + key);
+            }
+            // 一半立即退出，一半等校验完成后退出
+            quitAll(batch.subList(0, BATCH / 2));
+            drain(plugin);
+            quitAll(batch.subList(BATCH / 2, BATCH));
+            drain(plugin);
+
+            for (StubPlayer player : batch) {
+                if (api.isVerified(player.getUniqueId())) violations++;
+            }
+            // 全部退出后不应残留任何状态
+            if (sizeOf(plugin, "authenticatedPlayers") != 0 || sizeOf(plugin, "unverifiedPlayers") != 0
+                    || sizeOf(plugin, "verifyingPlayers") != 0 || sizeOf(plugin, "joinTimeMap") != 0) {
+                violations++;
+            }
+
+            departed.clear();
+            for (StubPlayer player : batch) departed.add(player.getUniqueId());
+            iterations++;
+        }
+
+        readers.stop();
+        report("验证 vs 退出", iterations, readers, violations, "退出后仍为已验证或残留状态");
+        server.unloadPlugin();
+    }
+
+    // 主线程记录验证时间并定期清空，读取线程同时复制和导出统计
+    private void statsVsClear() throws Exception {
+        KeyAuthPlugin plugin = load("stats-clear", false, new HashMap<>());
+        KeyAuthAPI api = KeyAuthProvider.get();
+        Path exportDir = Files.createTempDirectory("keyauth-stress-export");
+        AtomicLong exportIds = new AtomicLong();
+
+        Readers copiers = new Readers(Math.max(1, options.readers / 2), () -> {
+            for (Long time : plugin.getVerificationTimes()) {
+                if (time == null || time < 0) return "复制到无效的验证时间: " + time;
+            }
+            return null;
+        });
+        Readers exporters = new Readers(Math.max(1, options.readers / 2), () -> {
+            Path target = exportDir.resolve("stats-" + exportIds.incrementAndGet() + ".bin");
+            int written = api.exportVerificationStats(target, StatsFormat.BINARY).get(10, TimeUnit.SECONDS);
+            String problem = checkBinaryExport(target, written);
+            Files.deleteIfExists(target);
+            return problem;
+        });
+
+        long iterations = 0;
+        long deadline = deadline();
+        while (System.nanoTime() < deadline) {
+            List<StubPlayer> batch = joinBatch();
+            String key = plugin.getCurrentKey();
+            for (StubPlayer player : batch) {
+                server.command(player, "/key " + key);
+            }
+            quitAll(batch);
+            if (++iterations % 50 == 0) {
+                plugin.clearStatistics();
+            }
+            // 推进 tick 让导出任务得以执行
+            server.getScheduler().tick();
+        }
+
+        copiers.stop();
+        exporters.stop();
+        report("统计记录 vs 清空（复制）", iterations, copiers, 0, "");
+        report("统计记录 vs 清空（导出）", iterations, exporters, 0, "");
+        server.unloadPlugin();
+    }
+
+    // 交替通过 /keyreload 和文件监听重载配置，读取线程检查设置和已验证玩家不受影响
+    private void reloadVsRead() throws Exception {
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("auto-update.update-hour", 3);
+        KeyAuthPlugin plugin = load("reload-read", false, overrides);
+        KeyAuthAPI api = KeyAuthProvider.get();
+
+        List<StubPlayer> verified = joinBatch();
+        String key = plugin.getCurrentKey();
+        for (StubPlayer player : verified) {
+            server.command(player, "/key " + key);
+        }
+
+        Readers readers = new Readers(options.readers, () -> {
+            int hour = plugin.getUpdateHour();
+            if (hour != 3 && hour != 15) return "读取到中间状态的更新时间: " + hour;
+            if (api.getNextUpdateTime() <= 0) return "下次更新时间无效";
+            if (plugin.getCurrentKey() == null) return "密钥为空";
+            for (StubPlayer player : verified) {
+                if (!api.isVerified(player.getUniqueId())) return "重载期间已验证玩家失去验证状态";
+            }
+            return null;
+        });
+
+        File configFile = new File(plugin.getDataFolder(), "config.yml");
+        long iterations = 0;
+        long watcherTimeouts = 0;
+        long deadline = deadline();
+        while (System.nanoTime() < deadline) {
+            int hour = iterations % 2 == 0 ? 15 : 3;
+            YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+            config.set("auto-update.update-hour", hour);
+            config.save(configFile);
+
+            if (iterations % 4 == 0) {
+                plugin.reloadPluginConfig();
+            } else {
+                // 等待文件监听线程把修改交给主线程
+                long waitUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+                while (plugin.getUpdateHour() != hour && System.nanoTime() < waitUntil) {
+                    server.getScheduler().tick();
+                    Thread.sleep(1);
+                }
+                if (plugin.getUpdateHour() != hour) {
+                    watcherTimeouts++;
+                    plugin.reloadPluginConfig();
+                }
+            }
+            iterations++;
+        }
+
+        readers.stop();
+        report("配置重载 vs 读取", iterations, readers, 0, "");
+        if (watcherTimeouts > 0) {
+            System.out.println("  提示: 文件监听有 " + watcherTimeouts + " 次未在 2 秒内生效（部分文件系统的 WatchService 为轮询实现）");
+        }
+        quitAll(verified);
+        server.unloadPlugin();
+    }
+
+    private KeyAuthPlugin load(String name, boolean hash, Map<String, Object> overrides) throws IOException {
+        File dataFolder = Files.createTempDirectory("keyauth-stress-" + name).toFile();
+        overrides.put("key", "stress1");
+        overrides.put("security.hash-key", hash);
+        // 压测关注并发而不是推导耗时
+        overrides.put("security.iterations", 1000);
+        overrides.put("security.verifier-threads", 4);
+        return server.loadPlugin(dataFolder, overrides);
+    }
+
+    private List<StubPlayer> joinBatch() {
+        List<StubPlayer> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(server.join("Stress" + nextPlayerId++, ADDRESS));
+        }
+        return batch;
+    }
+
+    private void quitAll(List<StubPlayer> players) {
+        for (StubPlayer player : players) {
+            server.quit(player);
+        }
+    }
+
+    // 推进 tick 直到所有异步校验都回到主线程
+    private void drain(KeyAuthPlugin plugin) throws InterruptedException {
+        long waitUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        do {
+            server.getScheduler().tick();
+            if (sizeOf(plugin, "verifyingPlayers") == 0) {
+                server.getScheduler().tick();
+                return;
+            }
+            Thread.sleep(1);
+        } while (System.nanoTime() < waitUntil);
+    }
+
+    private long deadline() {
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(options.seconds);
+    }
+
+    private void report(String name, long iterations, Readers readers, long violations, String description) {
+        long total = violations + readers.getViolations();
+        System.out.printf("%s: 主线程 %d 轮，读取 %d 次%n", name, iterations, readers.getReads());
+        if (violations > 0) {
+            System.out.println("  " + description + ": " + violations + " 次");
+        }
+        if (readers.getFirstViolation() != null) {
+            System.out.println("  读取线程: " + readers.getViolations() + " 次，首次: " + readers.getFirstViolation());
+        }
+        System.out.println((total == 0 ? "[通过] " : "[失败] ") + name);
+        if (total > 0) failures++;
+    }
+
+    // 二进制导出：魔数、版本、记录数，之后每条 12 字节
+    private static String checkBinaryExport(Path file, int written) throws IOException {
+        try (InputStream in = Files.newInputStream(file); DataInputStream data = new DataInputStream(in)) {
+            if (data.readInt() != 0x4B415653) return "导出文件魔数错误";
+            data.readInt();
+            long count = data.readLong();
+            if (count != written) return "导出文件记录数 " + count + " 与返回值 " + written + " 不一致";
+            if (Files.size(file) != 16 + count * 12) return "导出文件长度与记录数不一致";
+        }
+        return null;
+    }
+
+    private static void invoke(KeyAuthPlugin plugin, String methodName) throws ReflectiveOperationException {
+        Method method = KeyAuthPlugin.class.getDeclaredMethod(methodName);
+        method.setAccessible(true);
+        method.invoke(plugin);
+    }
+
+    private static int sizeOf(KeyAuthPlugin plugin, String fieldName) {
+        try {
+            Field field = KeyAuthPlugin.class.getDeclaredField(fieldName);
+            field.setAccessible(true);
+            Object value = field.get(plugin);
+            if (value instanceof Map) return ((Map<?, ?>) value).size();
+            if (value instanceof Collection) return ((Collection<?>) value).size();
+            return -1;
+        } catch (ReflectiveOperationException e) {
+            return -1;
+        }
+    }
+
+    private interface Probe {
+        // 返回 null 表示本次读取满足不变式，否则返回问题描述
+        String run() throws Exception;
+    }
+
+    // 一组不断执行同一读取操作的线程，异常同样计为违反不变式
+    private static final class Readers {
+        private final List<Thread> threads = new ArrayList<>();
+        private final AtomicLong reads = new AtomicLong();
+        private final AtomicLong violations = new AtomicLong();
+        private volatile boolean running = true;
+        private volatile String firstViolation;
+
+        private Readers(int count, Probe probe) {
+            for (int i = 0; i < count; i++) {
+                Thread thread = new Thread(() -> {
+                    while (running) {
+                        String problem;
+                        try {
+                            problem = probe.run();
+                        } catch (Exception e) {
+                            problem = e.toString();
+                        }
+                        reads.incrementAndGet();
+                        if (problem != null) {
+                            violations.incrementAndGet();
+                            if (firstViolation == null) firstViolation = problem;
+                        }
+                    }
+                }, "Harness-Reader-" + i);
+                thread.setDaemon(true);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+
+        private void stop() throws InterruptedException {
+            running = false;
+            for (Thread thread : threads) {
+                thread.join(TimeUnit.SECONDS.toMillis(15));
+            }
+        }
+
+        private long getReads() {
+            return reads.get();
+        }
+
+        private long getViolations() {
+            return violations.get();
+        }
+
+        private String getFirstViolation() {
+            return firstViolation;
+        }
+    }
+
+    public static final class Options {
+        int seconds = 10;
+        int readers = 4;
+        String scenario;
+        boolean hash;
+        boolean verbose;
+
+        boolean selected(String name) {
+            return scenario == null || scenario.equals(name);
+        }
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--seconds":
+                        options.seconds = Integer.parseInt(args[++i]);
+                        break;
+                    case "--readers":
+                        options.readers = Integer.parseInt(args[++i]);
+                        break;
+                    case "--scenario":
+                        options.scenario = args[++i];
+                        break;
+                    case "--hash":
+                        options.hash = true;
+                        break;
+                    case "--verbose":
+                        options.verbose = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("未知参数: " + arg);
+                }
+            }
+            return options;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package com.keyauth.harness;
+
+import com.keyauth.KeyAuthPlugin;
+import com.keyauth.api.KeyAuthListener;
+import com.keyauth.api.KeyAuthProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * 离线压测：在进程内的服务器替身上模拟大量玩家加入、输错/输对密钥、移动和退出。
+ *
+ * 运行方式（harness 目录不打包进插件，先用 javac -cp KeyAuth.jar:spigot-api.jar -d harness-out 编译；
+ * classpath 需要包含编译结果、插件、resources 目录和 Spigot API）：
+ * java -cp harness-out:KeyAuth.jar:spigot-api.jar com.keyauth.harness.LoadTestHarness --players-per-second 50 --seconds 120
+ *
+ * 前 --warmup-seconds 秒用于 JIT 预热，不计入 tick 耗时和分配统计；CI 中通过 harness/run-harnesses.sh 运行。
+ */
+public class LoadTestHarness {
+
+    // 每个条目的大致内存占用，用于估算集合的堆增长
+    private static final int BYTES_PER_VERIFICATION_TIME = 12;
+    private static final int BYTES_PER_JOIN_TIME = 80;
+
+    private final Options options;
+    private final Random random;
+    private final List<SimPlayer> players = new ArrayList<>();
+    private final List<SimPlayer> allPlayers = new ArrayList<>();
+    private final AtomicInteger verifiedCount = new AtomicInteger();
+    private final Set<UUID> verifiedIds = ConcurrentHashMap.newKeySet();
+    private StubServer server;
+    private KeyAuthPlugin plugin;
+    private int nextPlayerId;
+    private int joined;
+    private int wrongAttempts;
+    private int rightAttempts;
+    private int blockedMoves;
+    private int kicked;
+    private int quits;
+    private int failures;
+
+    public LoadTestHarness(Options options) {
+        this.options = options;
+        this.random = new Random(options.seed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        LoadTestHarness harness = new LoadTestHarness(options);
+        harness.run();
+        System.exit(harness.failures == 0 ? 0 : 1);
+    }
+
+    public void run() throws IOException, InterruptedException {
+        server = StubServer.start(options.verbose ? Level.INFO : Level.WARNING);
+        File dataFolder = Files.createTempDirectory("keyauth-harness").toFile();
+
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("key", "harness1");
+        overrides.put("kick-delay", options.kickDelay);
+        overrides.put("security.hash-key", options.hash);
+        plugin = server.loadPlugin(dataFolder, overrides);
+
+        KeyAuthProvider.get().registerAsyncListener(plugin, new KeyAuthListener() {
+            @Override
+            public void onPlayerVerified(UUID playerId, String playerName, long verificationTime) {
+                verifiedCount.incrementAndGet();
+                verifiedIds.add(playerId);
+            }
+        });
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long heapBefore = 0;
+        long allocatedBefore = 0;
+        long startNanos = 0;
+
+        // 预热阶段照常生成玩家，但它的 tick 不进入统计
+        int warmupTicks = options.warmupSeconds * 20;
+        int totalTicks = warmupTicks + options.seconds * 20;
+        int drainTicks = (options.sessionSeconds + options.kickDelay + 5) * 20;
+        long[] allTickCosts = new long[totalTicks + drainTicks];
+        int maxPending = 0;
+        int maxJoinTimes = 0;
+        double spawnBudget = 0;
+
+        for (int tick = 0; tick < allTickCosts.length; tick++) {
+            if (tick == warmupTicks) {
+                System.gc();
+                heapBefore = memory.getHeapMemoryUsage().getUsed();
+                allocatedBefore = allocatedBytes();
+                startNanos = System.nanoTime();
+            }
+            long tickStart = System.nanoTime();
+
+            if (tick < totalTicks) {
+                spawnBudget += options.playersPerSecond / 20.0;
+                while (spawnBudget >= 1) {
+                    spawnBudget--;
+                    spawn(tick);
+                }
+            }
+            drivePlayers(tick);
+            server.getScheduler().tick();
+
+            long cost = System.nanoTime() - tickStart;
+            allTickCosts[tick] = cost;
+            if (tick < warmupTicks) continue;
+            maxPending = Math.max(maxPending, server.getScheduler().getPendingCount());
+            if (tick % 20 == 0) {
+                maxJoinTimes = Math.max(maxJoinTimes, sizeOf("joinTimeMap"));
+            }
+
+            if (options.realtime && cost < 50_000_000L) {
+                Thread.sleep((50_000_000L - cost) / 1_000_000L);
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long allocated = allocatedBytes() - allocatedBefore;
+        int verificationTimes = plugin.getVerificationCount();
+        int joinTimes = sizeOf("joinTimeMap");
+        int pendingAtEnd = server.getScheduler().getPendingCount();
+        double pluginCost = plugin.getGovernor().getAveragePluginMillis();
+
+        server.unloadPlugin();
+        server.getScheduler().shutdown();
+        System.gc();
+        long heapAfter = memory.getHeapMemoryUsage().getUsed();
+
+        long[] tickCosts = Arrays.copyOfRange(allTickCosts, warmupTicks, allTickCosts.length);
+        long[] sorted = tickCosts.clone();
+        Arrays.sort(sorted);
+        double simulatedSeconds = tickCosts.length / 20.0;
+
+        System.out.println("=== KeyAuth 压测结果 ===");
+        System.out.printf("场景: players/s=%d seconds=%d warmup=%ds wrong-ratio=%.2f idle-ratio=%.2f session=%ds hash=%s realtime=%s%n",
+                options.playersPerSecond, options.seconds, options.warmupSeconds, options.wrongRatio, options.idleRatio, options.sessionSeconds, options.hash, options.realtime);
+        System.out.printf("玩家: joined=%d verified=%d kicked=%d quit=%d wrong=%d right=%d blocked-moves=%d%n",
+                joined, verifiedCount.get(), kicked, quits, wrongAttempts, rightAttempts, blockedMoves);
+        System.out.printf("每 tick 耗时(ms): avg=%.3f p50=%.3f p99=%.3f max=%.3f plugin-self=%.3f%n",
+                average(tickCosts) / 1e6, percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6, sorted[sorted.length - 1] / 1e6, pluginCost);
+        System.out.printf("分配: total=%.1fMB per-sim-second=%.2fMB per-wall-second=%.2fMB%n",
+                allocated / 1048576.0, allocated / 1048576.0 / simulatedSeconds, allocated / 1048576.0 / (elapsedNanos / 1e9));
+        System.out.printf("调度器: pending-max=%d pending-end=%d executed=%d%n",
+                maxPending, pendingAtEnd, server.getScheduler().getExecutedTasks());
+        System.out.printf("集合: verificationTimes=%d (~%dKB) joinTimeMap-max=%d (~%dKB) joinTimeMap-end=%d%n",
+                verificationTimes, verificationTimes * BYTES_PER_VERIFICATION_TIME / 1024, maxJoinTimes, maxJoinTimes * BYTES_PER_JOIN_TIME / 1024, joinTimes);
+        System.out.printf("堆: before=%.1fMB after=%.1fMB delta=%.1fMB wall=%.1fs%n",
+                heapBefore / 1048576.0, heapAfter / 1048576.0, (heapAfter - heapBefore) / 1048576.0, elapsedNanos / 1e9);
+        // 便于多次运行结果对比的单行汇总
+        System.out.printf("RESULT,%d,%d,%d,%d,%.3f,%.3f,%.3f,%.2f,%d,%d,%d,%.1f%n",
+                options.playersPerSecond, options.seconds, joined, verifiedCount.get(),
+                average(tickCosts) / 1e6, percentile(sorted, 0.99) / 1e6, sorted[sorted.length - 1] / 1e6,
+                allocated / 1048576.0 / simulatedSeconds, maxPending, verificationTimes, maxJoinTimes, (heapAfter - heapBefore) / 1048576.0);
+
+        // 阈值可用参数调整，任一项不满足时以非零退出码结束
+        check(String.format("p99 tick 耗时 %.3fms <= %.3fms", percentile(sorted, 0.99) / 1e6, options.maxP99Millis),
+                percentile(sorted, 0.99) / 1e6 <= options.maxP99Millis);
+        check(String.format("最长 tick 耗时 %.3fms <= %.3fms", sorted[sorted.length - 1] / 1e6, options.maxTickMillis),
+                sorted[sorted.length - 1] / 1e6 <= options.maxTickMillis);
+        check("所有玩家离开后 joinTimeMap 为空（剩余 " + joinTimes + "）", joinTimes == 0);
+        // 脚本决定了每个玩家的结局：输对过密钥的玩家恰好验证一次，其余玩家（挂机、只输错、来不及输入）始终未验证
+        int expectedVerified = 0;
+        int wronglyVerified = 0;
+        int missingVerified = 0;
+        for (SimPlayer player : allPlayers) {
+            boolean verified = verifiedIds.contains(player.stub.getUniqueId());
+            if (player.sentRightKey) {
+                expectedVerified++;
+                if (!verified) missingVerified++;
+            } else if (verified) {
+                wronglyVerified++;
+            }
+        }
+        int expectedUnverified = joined - expectedVerified;
+        int unverified = joined - verifiedIds.size();
+        check("验证回调次数 " + verifiedCount.get() + " == 输对密钥的玩家数 " + expectedVerified,
+                verifiedCount.get() == expectedVerified);
+        check("已验证玩家数 " + verifiedIds.size() + " == " + expectedVerified + "（缺失 " + missingVerified + "）",
+                verifiedIds.size() == expectedVerified && missingVerified == 0);
+        check("未验证玩家数 " + unverified + " == " + expectedUnverified + "（误验证 " + wronglyVerified + "）",
+                unverified == expectedUnverified && wronglyVerified == 0);
+        System.out.println(failures == 0 ? "全部通过" : failures + " 项失败");
+    }
+
+    private void check(String name, boolean passed) {
+        System.out.println((passed ? "[通过] " : "[失败] ") + name);
+        if (!passed) failures++;
+    }
+
+    private void spawn(int tick) {
+        int id = nextPlayerId++;
+        // 使用 10.x.x.x 地址，每个玩家不同
+        byte[] address = {10, (byte) (id >> 16), (byte) (id >> 8), (byte) id};
+        StubPlayer stub = server.join("Bot" + id, address);
+        joined++;
+
+        SimPlayer player = new SimPlayer(stub);
+        allPlayers.add(player);
+        player.idle = random.nextDouble() < options.idleRatio;
+        player.wrongFirst = random.nextDouble() < options.wrongRatio;
+        player.attemptTick = tick + 20 + random.nextInt(80);
+        player.quitTick = player.attemptTick + options.sessionSeconds * 20 + random.nextInt(200);
+        players.add(player);
+    }
+
+    private void drivePlayers(int tick) {
+        Iterator<SimPlayer> iterator = players.iterator();
+        while (iterator.hasNext()) {
+            SimPlayer player = iterator.next();
+            StubPlayer stub = player.stub;
+
+            // 被踢出
+            if (!stub.isOnline()) {
+                if (stub.isKicked()) kicked++;
+                iterator.remove();
+                continue;
+            }
+
+            if (tick >= player.quitTick) {
+                server.quit(stub);
+                quits++;
+                iterator.remove();
+                continue;
+            }
+
+            if (!player.idle && tick == player.attemptTick && player.wrongFirst) {
+                wrongAttempts++;
+                server.command(stub, "/key wrong" + random.nextInt(1000));
+                player.attemptTick = tick + 20 + random.nextInt(40);
+                player.wrongFirst = false;
+            } else if (!player.idle && tick == player.attemptTick) {
+                rightAttempts++;
+                player.sentRightKey = true;
+                server.command(stub, "/key " + plugin.getCurrentKey());
+            }
+
+            // 一部分玩家在这个 tick 里移动
+            if (random.nextDouble() < options.moveChance) {
+                double dx = random.nextBoolean() ? 1.0 : -1.0;
+                if (!server.move(stub, dx, 0, 0)) {
+                    blockedMoves++;
+                }
+            }
+        }
+    }
+
+    private int sizeOf(String fieldName) {
+        // 只读取私有集合的大小，用于观察内存增长
+        try {
+            Field field = KeyAuthPlugin.class.getDeclaredField(fieldName);
+            field.setAccessible(true);
+            Object value = field.get(plugin);
+            if (value instanceof Map) return ((Map<?, ?>) value).size();
+            if (value instanceof Collection) return ((Collection<?>) value).size();
+            return -1;
+        } catch (ReflectiveOperationException e) {
+            return -1;
+        }
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static double average(long[] values) {
+        long total = 0;
+        for (long value : values) total += value;
+        return values.length == 0 ? 0 : total / (double) values.length;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+
+    private static final class SimPlayer {
+        private final StubPlayer stub;
+        private boolean idle;
+        private boolean wrongFirst;
+        private boolean sentRightKey;
+        private int attemptTick;
+        private int quitTick;
+
+        private SimPlayer(StubPlayer stub) {
+            this.stub = stub;
+        }
+    }
+
+    public static final class Options {
+        int playersPerSecond = 20;
+        int seconds = 60;
+        int warmupSeconds = 10;
+        int sessionSeconds = 30;
+        int kickDelay = 60;
+        double wrongRatio = 0.3;
+        double idleRatio = 0.05;
+        double moveChance = 0.5;
+        boolean hash;
+        boolean realtime;
+        boolean verbose;
+        long seed = 42;
+        double maxP99Millis = 10;
+        double maxTickMillis = 50;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--players-per-second":
+                        options.playersPerSecond = Integer.parseInt(args[++i]);
+                        break;
+                    case "--seconds":
+                        options.seconds = Integer.parseInt(args[++i]);
+                        break;
+                    case "--warmup-seconds":
+                        options.warmupSeconds = Integer.parseInt(args[++i]);
+                        break;
+                    case "--session-seconds":
+                        options.sessionSeconds = Integer.parseInt(args[++i]);
+                        break;
+                    case "--kick-delay":
+                        options.kickDelay = Integer.parseInt(args[++i]);
+                        break;
+                    case "--wrong-ratio":
+                        options.wrongRatio = Double.parseDouble(args[++i]);
+                        break;
+                    case "--idle-ratio":
+                        options.idleRatio = Double.parseDouble(args[++i]);
+                        break;
+                    case "--move-chance":
+                        options.moveChance = Double.parseDouble(args[++i]);
+                        break;
+                    case "--max-p99-ms":
+                        options.maxP99Millis = Double.parseDouble(args[++i]);
+                        break;
+                    case "--max-tick-ms":
+                        options.maxTickMillis = Double.parseDouble(args[++i]);
+                        break;
+                    case "--seed":
+                        options.seed = Long.parseLong(args[++i]);
+                        break;
+                    case "--hash":
+                        options.hash = true;
+                        break;
+                    case "--realtime":
+                        options.realtime = true;
+                        break;
+                    case "--verbose":
+                        options.verbose = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("未知参数: " + arg);
+                }
+            }
+            return options;
+        }
+    }
+}
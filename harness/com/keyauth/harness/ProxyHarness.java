@@ -0,0 +1,122 @@
+package com.keyauth.harness;
+
+import com.keyauth.KeyAuthPlugin;
+import com.keyauth.proxy.ProxyMessage;
+import com.keyauth.proxy.ProxyVerifier;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * 群组服验证的本地演练：用代理替身在两个子服之间切换同一个玩家，
+ * 检查只需验证一次，以及伪造、重放的消息会被丢弃。
+ *
+ * 运行方式（harness 目录不打包进插件，先用 javac -cp KeyAuth.jar:spigot-api.jar -d harness-out 编译；
+ * classpath 需要包含编译结果、插件、resources 目录和 Spigot API）：
+ * java -cp harness-out:KeyAuth.jar:spigot-api.jar com.keyauth.harness.ProxyHarness
+ */
+public class ProxyHarness {
+
+    private static final String SECRET = "harness-proxy-secret";
+    private static final byte[] ADDRESS = {10, 0, 0, 1};
+
+    private final StubServer server;
+    private final StubProxy proxy;
+    private int failures;
+
+    private ProxyHarness() {
+        this.server = StubServer.start(Level.WARNING);
+        this.proxy = new StubProxy(server, new ProxyVerifier(SECRET, 0, 30_000L));
+    }
+
+    public static void main(String[] args) throws IOException {
+        ProxyHarness harness = new ProxyHarness();
+        harness.run();
+        System.exit(harness.failures == 0 ? 0 : 1);
+    }
+
+    private void run() throws IOException {
+        // 子服 A：第一次加入，需要输入密钥
+        KeyAuthPlugin lobby = loadBackend("lobby");
+        StubPlayer player = proxy.connect("Alice", ADDRESS);
+        check("首次加入需要验证", !lobby.isAuthenticated(player.getPlayer()));
+        server.command(player, "/key " + lobby.getCurrentKey());
+        check("子服 A 验证成功", lobby.isAuthenticated(player.getPlayer()));
+        check("代理收到验证通知", proxy.getVerifier().isVerified(player.getUniqueId()));
+
+        // 切换到子服 B：代理发送断言，不需要再次输入密钥
+        proxy.leaveBackend(player);
+        server.unloadPlugin();
+        KeyAuthPlugin survival = loadBackend("survival");
+        player = proxy.connect("Alice", ADDRESS);
+        check("子服 B 自动通过验证", survival.isAuthenticated(player.getPlayer()));
+        advance(40);
+        check("子服 B 没有显示验证标题", player.getTitles() == 0);
+
+        // 未在代理验证过的玩家不受影响
+        StubPlayer other = proxy.connect("Bob", new byte[]{10, 0, 0, 2});
+        check("其他玩家仍需验证", !survival.isAuthenticated(other.getPlayer()));
+
+        // 伪造：错误密钥签名
+        byte[] forged = new ProxyMessage(ProxyMessage.Type.ASSERT, other.getUniqueId(), System.currentTimeMillis(), 1L)
+                .encode(ProxyMessage.secretOf("wrong-secret-wrong-secret"));
+        server.deliverPluginMessage(other, ProxyMessage.CHANNEL, forged);
+        check("伪造签名被拒绝", !survival.isAuthenticated(other.getPlayer()));
+
+        // 冒用：为 Alice 签发的断言发给 Bob
+        byte[] foreign = new ProxyMessage(ProxyMessage.Type.ASSERT, player.getUniqueId(), System.currentTimeMillis(), 2L)
+                .encode(ProxyMessage.secretOf(SECRET));
+        server.deliverPluginMessage(other, ProxyMessage.CHANNEL, foreign);
+        check("他人的断言被拒绝", !survival.isAuthenticated(other.getPlayer()));
+
+        // 重放：同一条合法断言发送两次
+        UUID bobId = other.getUniqueId();
+        byte[] valid = new ProxyMessage(ProxyMessage.Type.ASSERT, bobId, System.currentTimeMillis(), 3L)
+                .encode(ProxyMessage.secretOf(SECRET));
+        server.deliverPluginMessage(other, ProxyMessage.CHANNEL, valid);
+        check("合法断言被接受", survival.isAuthenticated(other.getPlayer()));
+        proxy.leaveBackend(other);
+        other = server.join("Bob", new byte[]{10, 0, 0, 2});
+        server.deliverPluginMessage(other, ProxyMessage.CHANNEL, valid);
+        check("重放的断言被拒绝", !survival.isAuthenticated(other.getPlayer()));
+
+        // 过期：超出时间窗口的断言
+        byte[] stale = new ProxyMessage(ProxyMessage.Type.ASSERT, bobId, System.currentTimeMillis() - 120_000L, 4L)
+                .encode(ProxyMessage.secretOf(SECRET));
+        server.deliverPluginMessage(other, ProxyMessage.CHANNEL, stale);
+        check("过期的断言被拒绝", !survival.isAuthenticated(other.getPlayer()));
+
+        // 断开代理后验证状态清除
+        proxy.disconnect(player);
+        check("断开代理后需要重新验证", !proxy.getVerifier().isVerified(player.getUniqueId()));
+
+        server.unloadPlugin();
+        server.getScheduler().shutdown();
+        System.out.println(failures == 0 ? "全部通过" : failures + " 项失败");
+    }
+
+    private KeyAuthPlugin loadBackend(String name) throws IOException {
+        File dataFolder = Files.createTempDirectory("keyauth-" + name).toFile();
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("key", "proxy1");
+        overrides.put("proxy.enabled", true);
+        overrides.put("proxy.secret", SECRET);
+        return server.loadPlugin(dataFolder, overrides);
+    }
+
+    private void advance(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            server.getScheduler().tick();
+        }
+    }
+
+    private void check(String name, boolean passed) {
+        System.out.println((passed ? "[通过] " : "[失败] ") + name);
+        if (!passed) failures++;
+    }
+}
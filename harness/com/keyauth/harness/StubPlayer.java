@@ -0,0 +1,154 @@
+package com.keyauth.harness;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+
+// 假玩家，只记录插件对玩家的调用，不做任何网络发送
+public class StubPlayer implements InvocationHandler {
+
+    private final UUID uniqueId;
+    private final String name;
+    private final StubServer server;
+    private final InetSocketAddress address;
+    private final Player proxy;
+
+    private volatile boolean online = true;
+    private volatile boolean kicked;
+    private volatile boolean op;
+    private volatile Location location;
+    private volatile String locale = "zh_cn";
+    private volatile float walkSpeed = 0.2f;
+    private volatile float flySpeed = 0.1f;
+    private long messages;
+    private long titles;
+
+    StubPlayer(StubServer server, UUID uniqueId, String name, byte[] address, World world) {
+        this.server = server;
+        this.uniqueId = uniqueId;
+        this.name = name;
+        this.location = new Location(world, 0.5, 64, 0.5);
+        try {
+            this.address = new InetSocketAddress(InetAddress.getByAddress(address), 25565);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(e);
+        }
+        this.proxy = (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[]{Player.class}, this);
+    }
+
+    public Player getPlayer() {
+        return proxy;
+    }
+
+    public UUID getUniqueId() {
+        return uniqueId;
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public boolean isKicked() {
+        return kicked;
+    }
+
+    public void setOp(boolean op) {
+        this.op = op;
+    }
+
+    public void setLocale(String locale) {
+        this.locale = locale;
+    }
+
+    public Location getLocation() {
+        return location.clone();
+    }
+
+    public synchronized long getMessages() {
+        return messages;
+    }
+
+    public synchronized long getTitles() {
+        return titles;
+    }
+
+    void markOffline() {
+        online = false;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getUniqueId":
+                return uniqueId;
+            case "getName":
+            case "getDisplayName":
+            case "getPlayerListName":
+                return name;
+            case "isOnline":
+            case "isConnected":
+            case "isValid":
+                return online;
+            case "isOp":
+                return op;
+            case "hasPermission":
+                return op;
+            case "getAddress":
+                return address;
+            case "getLocale":
+                return locale;
+            case "getLocation":
+                return location.clone();
+            case "getWorld":
+                return location.getWorld();
+            case "getServer":
+                return server.getServer();
+            case "teleport":
+                if (args[0] instanceof Location) {
+                    location = ((Location) args[0]).clone();
+                }
+                return true;
+            case "getWalkSpeed":
+                return walkSpeed;
+            case "setWalkSpeed":
+                walkSpeed = (Float) args[0];
+                return null;
+            case "getFlySpeed":
+                return flySpeed;
+            case "setFlySpeed":
+                flySpeed = (Float) args[0];
+                return null;
+            case "sendMessage":
+            case "sendRawMessage":
+                synchronized (this) {
+                    messages++;
+                }
+                return null;
+            case "sendTitle":
+                synchronized (this) {
+                    titles++;
+                }
+                return null;
+            case "sendPluginMessage":
+                server.sendToProxy(this, (String) args[1], (byte[]) args[2]);
+                return null;
+            case "kickPlayer":
+                // 和真实服务器一样，踢出会触发退出事件
+                if (online) {
+                    kicked = true;
+                    server.quit(this);
+                }
+                return null;
+            default:
+                return Stubs.objectMethod(proxy, method, args, name);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.keyauth.harness;
+
+import com.keyauth.proxy.ProxyMessage;
+import com.keyauth.proxy.ProxyVerifier;
+
+// 本地代理替身：和真实代理插件一样把 ProxyVerifier 接到子服连接上
+public class StubProxy {
+
+    private final StubServer server;
+    private final ProxyVerifier verifier;
+    private int intercepted;
+
+    public StubProxy(StubServer server, ProxyVerifier verifier) {
+        this.server = server;
+        this.verifier = verifier;
+        server.attachProxy(this);
+    }
+
+    public ProxyVerifier getVerifier() {
+        return verifier;
+    }
+
+    public int getIntercepted() {
+        return intercepted;
+    }
+
+    // 玩家经代理连接到子服：先完成子服加入流程，再发送代理的验证断言
+    public StubPlayer connect(String name, byte[] address) {
+        StubPlayer player = server.join(name, address);
+        byte[] assertion = verifier.onServerConnected(player.getUniqueId());
+        if (assertion != null) {
+            server.deliverPluginMessage(player, ProxyMessage.CHANNEL, assertion);
+        }
+        return player;
+    }
+
+    // 切换子服：离开当前子服，但代理连接保持
+    public void leaveBackend(StubPlayer player) {
+        server.quit(player);
+    }
+
+    public void disconnect(StubPlayer player) {
+        server.quit(player);
+        verifier.onDisconnect(player.getUniqueId());
+    }
+
+    void fromBackend(StubPlayer player, String channel, byte[] data) {
+        if (verifier.onBackendMessage(channel, player.getUniqueId(), data)) {
+            intercepted++;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.keyauth.harness;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// 以模拟 tick 驱动的调度器，同步任务在 tick() 的调用线程执行，异步任务交给线程池
+public class StubScheduler implements InvocationHandler {
+
+    private final Map<Integer, Task> tasks = new HashMap<>();
+    private final PriorityQueue<Task> queue = new PriorityQueue<>((a, b) -> Long.compare(a.nextTick, b.nextTick));
+    private final AtomicInteger ids = new AtomicInteger();
+    private final ExecutorService asyncExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "Harness-Async");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long currentTick;
+    private long executedTasks;
+
+    public synchronized long getCurrentTick() {
+        return currentTick;
+    }
+
+    public synchronized int getPendingCount() {
+        return queue.size();
+    }
+
+    public synchronized long getExecutedTasks() {
+        return executedTasks;
+    }
+
+    // 推进一个 tick，并执行所有到期任务
+    public void tick() {
+        List<Task> due = new ArrayList<>();
+        synchronized (this) {
+            currentTick++;
+            while (!queue.isEmpty() && queue.peek().nextTick <= currentTick) {
+                due.add(queue.poll());
+            }
+        }
+
+        for (Task task : due) {
+            if (task.cancelled) continue;
+
+            if (task.async) {
+                asyncExecutor.execute(task.runnable);
+            } else {
+                task.runnable.run();
+            }
+
+            synchronized (this) {
+                executedTasks++;
+                if (task.period > 0 && !task.cancelled) {
+                    task.nextTick = currentTick + task.period;
+                    queue.add(task);
+                } else {
+                    tasks.remove(task.id);
+                }
+            }
+        }
+    }
+
+    public void shutdown() {
+        asyncExecutor.shutdown();
+        try {
+            asyncExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        boolean async = name.contains("Asynchronously") || name.startsWith("scheduleAsync");
+
+        switch (name) {
+            case "runTask":
+            case "runTaskAsynchronously":
+                return schedule((Plugin) args[0], args[1], 0, -1, async);
+            case "runTaskLater":
+            case "runTaskLaterAsynchronously":
+                return schedule((Plugin) args[0], args[1], (Long) args[2], -1, async);
+            case "runTaskTimer":
+            case "runTaskTimerAsynchronously":
+                return schedule((Plugin) args[0], args[1], (Long) args[2], (Long) args[3], async);
+            case "scheduleSyncDelayedTask":
+            case "scheduleAsyncDelayedTask":
+                return schedule((Plugin) args[0], args[1], args.length > 2 ? (Long) args[2] : 0, -1, async).getTaskId();
+            case "scheduleSyncRepeatingTask":
+            case "scheduleAsyncRepeatingTask":
+                return schedule((Plugin) args[0], args[1], (Long) args[2], (Long) args[3], async).getTaskId();
+            case "cancelTask":
+                cancel((Integer) args[0]);
+                return null;
+            case "cancelTasks":
+                cancelAllTasks();
+                return null;
+            case "isQueued":
+            case "isCurrentlyRunning":
+                return isQueued((Integer) args[0]);
+            case "getPendingTasks":
+                return new ArrayList<BukkitTask>();
+            default:
+                return Stubs.defaultValue(method.getReturnType());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private BukkitTask schedule(Plugin owner, Object target, long delay, long period, boolean async) {
+        Task task = new Task(ids.incrementAndGet(), owner, async, period);
+        if (target instanceof Runnable) {
+            task.runnable = (Runnable) target;
+        } else {
+            Consumer<BukkitTask> consumer = (Consumer<BukkitTask>) target;
+            task.runnable = () -> consumer.accept(task.handle);
+        }
+
+        synchronized (this) {
+            task.nextTick = currentTick + Math.max(1, delay);
+            tasks.put(task.id, task);
+            queue.add(task);
+        }
+        return task.handle;
+    }
+
+    private synchronized void cancel(int taskId) {
+        // 任务可能正在执行（已出队），所以通过 id 表查找
+        Task task = tasks.remove(taskId);
+        if (task != null) {
+            task.cancelled = true;
+            queue.remove(task);
+        }
+    }
+
+    public synchronized void cancelAllTasks() {
+        for (Task task : tasks.values()) {
+            task.cancelled = true;
+        }
+        tasks.clear();
+        queue.clear();
+    }
+
+    private synchronized boolean isQueued(int taskId) {
+        return tasks.containsKey(taskId);
+    }
+
+    private final class Task {
+        private final int id;
+        private final boolean async;
+        private final long period;
+        private final BukkitTask handle;
+        private Runnable runnable;
+        private long nextTick;
+        private volatile boolean cancelled;
+
+        private Task(int id, Plugin owner, boolean async, long period) {
+            this.id = id;
+            this.async = async;
+            this.period = period;
+            this.handle = (BukkitTask) Proxy.newProxyInstance(BukkitTask.class.getClassLoader(), new Class<?>[]{BukkitTask.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getTaskId":
+                                return id;
+                            case "getOwner":
+                                return owner;
+                            case "isSync":
+                                return !async;
+                            case "isCancelled":
+                                return cancelled;
+                            case "cancel":
+                                StubScheduler.this.cancel(id);
+                                return null;
+                            default:
+                                return Stubs.objectMethod(proxy, method, args, "Task#" + id);
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.keyauth.harness;
+
+import com.keyauth.KeyAuthPlugin;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.RegisteredListener;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.bukkit.plugin.messaging.Messenger;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+import org.bukkit.scheduler.BukkitScheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// 进程内的 Bukkit 服务器替身，只实现 KeyAuth 用到的部分，用于离线压测
+public class StubServer {
+
+    private static StubServer instance;
+
+    private final Logger logger = Logger.getLogger("KeyAuthHarness");
+    private final StubScheduler scheduler = new StubScheduler();
+    private final Map<UUID, StubPlayer> onlinePlayers = new ConcurrentHashMap<>();
+    private final Map<String, PluginCommand> commands = new ConcurrentHashMap<>();
+    private final Map<String, PluginMessageListener> channels = new ConcurrentHashMap<>();
+    private final Thread mainThread = Thread.currentThread();
+    private final Server server;
+    private final PluginManager pluginManager;
+    private final BukkitScheduler schedulerProxy;
+    private final Messenger messenger;
+    private final World world;
+    private HarnessPlugin plugin;
+    private JavaPluginLoader loader;
+    private StubProxy proxy;
+
+    private StubServer(Level logLevel) {
+        ConsoleHandler handler = new ConsoleHandler();
+        handler.setLevel(logLevel);
+        logger.setUseParentHandlers(false);
+        logger.addHandler(handler);
+        logger.setLevel(logLevel);
+
+        this.server = proxy(Server.class, this::handleServer);
+        this.pluginManager = proxy(PluginManager.class, this::handlePluginManager);
+        this.schedulerProxy = proxy(BukkitScheduler.class, scheduler);
+        this.messenger = proxy(Messenger.class, this::handleMessenger);
+        this.world = proxy(World.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getName":
+                    return "world";
+                case "getSpawnLocation":
+                    return new Location((World) proxy, 0.5, 64, 0.5);
+                case "getPlayers":
+                    return new ArrayList<>();
+                default:
+                    return Stubs.objectMethod(proxy, method, args, "world");
+            }
+        });
+    }
+
+    // Bukkit 的 Server 单例在一个 JVM 中只能设置一次
+    public static synchronized StubServer start(Level logLevel) {
+        if (instance == null) {
+            instance = new StubServer(logLevel);
+            Bukkit.setServer(instance.server);
+        }
+        return instance;
+    }
+
+    public Server getServer() {
+        return server;
+    }
+
+    public StubScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public Collection<StubPlayer> getOnlinePlayers() {
+        return onlinePlayers.values();
+    }
+
+    // 子服发出的插件消息转交给代理替身，没有代理时丢弃
+    void attachProxy(StubProxy proxy) {
+        this.proxy = proxy;
+    }
+
+    void sendToProxy(StubPlayer player, String channel, byte[] data) {
+        StubProxy current = proxy;
+        if (current != null) {
+            current.fromBackend(player, channel, data);
+        }
+    }
+
+    // 模拟代理经玩家连接发给本服的插件消息
+    public void deliverPluginMessage(StubPlayer player, String channel, byte[] data) {
+        PluginMessageListener listener = channels.get(channel);
+        if (listener != null && player.isOnline()) {
+            listener.onPluginMessageReceived(channel, player.getPlayer(), data);
+        }
+    }
+
+    public boolean isPrimaryThread() {
+        return Thread.currentThread() == mainThread;
+    }
+
+    // 在 dataFolder 中写入配置并启用插件，overrides 会覆盖 config.yml 中的对应项
+    public KeyAuthPlugin loadPlugin(File dataFolder, Map<String, Object> overrides) throws IOException {
+        dataFolder.mkdirs();
+
+        YamlConfiguration config;
+        try (InputStream in = resource("config.yml")) {
+            config = YamlConfiguration.loadConfiguration(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+        config.set("auto-update.web-path", new File(dataFolder, "web/key.txt").getPath());
+        for (Map.Entry<String, Object> entry : overrides.entrySet()) {
+            config.set(entry.getKey(), entry.getValue());
+        }
+        config.save(new File(dataFolder, "config.yml"));
+
+        PluginDescriptionFile description;
+        try (InputStream in = resource("plugin.yml")) {
+            description = new PluginDescriptionFile(in);
+        } catch (Exception e) {
+            throw new IOException("无法读取 plugin.yml", e);
+        }
+
+        loader = new JavaPluginLoader(server);
+        plugin = new HarnessPlugin(loader, description, dataFolder, new File(dataFolder, "KeyAuth.jar"));
+        plugin.enable();
+        return plugin;
+    }
+
+    public void unloadPlugin() {
+        if (plugin == null) return;
+        plugin.disable();
+        HandlerList.unregisterAll((Plugin) plugin);
+        scheduler.cancelAllTasks();
+        commands.clear();
+        channels.clear();
+        plugin = null;
+    }
+
+    public StubPlayer join(String name, byte[] address) {
+        return join(name, address, false);
+    }
+
+    // OP 身份需要在加入事件之前确定
+    public StubPlayer join(String name, byte[] address, boolean op) {
+        StubPlayer player = new StubPlayer(this, UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8)), name, address, world);
+        player.setOp(op);
+        onlinePlayers.put(player.getUniqueId(), player);
+        callEvent(new PlayerJoinEvent(player.getPlayer(), name + " joined the game"));
+        return player;
+    }
+
+    public void quit(StubPlayer player) {
+        if (onlinePlayers.remove(player.getUniqueId()) == null) return;
+        callEvent(new PlayerQuitEvent(player.getPlayer(), player.getPlayer().getName() + " left the game"));
+        player.markOffline();
+    }
+
+    // 返回玩家是否真正移动到了目标位置
+    public boolean move(StubPlayer player, double dx, double dy, double dz) {
+        Location from = player.getLocation();
+        Location to = from.clone().add(dx, dy, dz);
+        PlayerMoveEvent event = new PlayerMoveEvent(player.getPlayer(), from, to);
+        callEvent(event);
+
+        if (event.isCancelled()) return false;
+        Location result = event.getTo();
+        player.getPlayer().teleport(result);
+        return result.getX() == to.getX() && result.getY() == to.getY() && result.getZ() == to.getZ();
+    }
+
+    // 和真实服务器一样先触发预处理事件，没有被拦截时再执行命令
+    public boolean command(StubPlayer player, String line) {
+        PlayerCommandPreprocessEvent event = new PlayerCommandPreprocessEvent(player.getPlayer(), line);
+        callEvent(event);
+        if (event.isCancelled()) return false;
+
+        String[] parts = event.getMessage().substring(1).split(" ");
+        PluginCommand command = commands.get(parts[0].toLowerCase());
+        if (command == null) return false;
+        return command.execute(player.getPlayer(), parts[0], Arrays.copyOfRange(parts, 1, parts.length));
+    }
+
+    public void callEvent(Event event) {
+        for (RegisteredListener listener : event.getHandlers().getRegisteredListeners()) {
+            try {
+                listener.callEvent(event);
+            } catch (EventException e) {
+                throw new IllegalStateException("事件处理出错: " + event.getEventName(), e.getCause());
+            }
+        }
+    }
+
+    private Object handleServer(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getLogger":
+                return logger;
+            case "getName":
+                return "KeyAuthHarness";
+            case "getVersion":
+            case "getBukkitVersion":
+                return "harness";
+            case "getPluginManager":
+                return pluginManager;
+            case "getScheduler":
+                return schedulerProxy;
+            case "getOnlinePlayers":
+                Collection<Player> players = new ArrayList<>();
+                for (StubPlayer player : onlinePlayers.values()) {
+                    players.add(player.getPlayer());
+                }
+                return Collections.unmodifiableCollection(players);
+            case "getPlayer":
+                if (args[0] instanceof UUID) {
+                    StubPlayer player = onlinePlayers.get(args[0]);
+                    return player != null ? player.getPlayer() : null;
+                }
+                for (StubPlayer player : onlinePlayers.values()) {
+                    if (player.getPlayer().getName().equalsIgnoreCase((String) args[0])) return player.getPlayer();
+                }
+                return null;
+            case "getWorld":
+                return world;
+            case "getWorlds":
+                return Collections.singletonList(world);
+            case "isPrimaryThread":
+                return isPrimaryThread();
+            case "broadcastMessage":
+                return onlinePlayers.size();
+            case "getPluginCommand":
+                return commands.computeIfAbsent((String) args[0], this::createCommand);
+            case "getMessenger":
+                return messenger;
+            default:
+                return Stubs.objectMethod(proxy, method, args, "StubServer");
+        }
+    }
+
+    private Object handlePluginManager(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "registerEvents":
+                registerEvents((Listener) args[0], (Plugin) args[1]);
+                return null;
+            case "callEvent":
+                callEvent((Event) args[0]);
+                return null;
+            case "getPlugin":
+                return plugin != null && plugin.getName().equalsIgnoreCase((String) args[0]) ? plugin : null;
+            case "isPluginEnabled":
+                return plugin != null && plugin.isEnabled();
+            default:
+                return Stubs.objectMethod(proxy, method, args, "StubPluginManager");
+        }
+    }
+
+    private Object handleMessenger(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "registerIncomingPluginChannel":
+                channels.put((String) args[1], (PluginMessageListener) args[2]);
+                return null;
+            case "unregisterIncomingPluginChannel":
+                if (args.length > 1) {
+                    channels.remove((String) args[1]);
+                } else {
+                    channels.clear();
+                }
+                return null;
+            default:
+                return Stubs.objectMethod(proxy, method, args, "StubMessenger");
+        }
+    }
+
+    // 和 SimplePluginManager 一样注册到各事件的 HandlerList，这样 HandlerList.unregisterAll 也能生效
+    private void registerEvents(Listener listener, Plugin owner) {
+        for (Map.Entry<Class<? extends Event>, Set<RegisteredListener>> entry : loader.createRegisteredListeners(listener, owner).entrySet()) {
+            handlerListOf(entry.getKey()).registerAll(entry.getValue());
+        }
+    }
+
+    private static HandlerList handlerListOf(Class<?> eventClass) {
+        for (Class<?> type = eventClass; type != null && Event.class.isAssignableFrom(type); type = type.getSuperclass()) {
+            try {
+                Method method = type.getDeclaredMethod("getHandlerList");
+                method.setAccessible(true);
+                return (HandlerList) method.invoke(null);
+            } catch (NoSuchMethodException ignored) {
+                // 继续查找父类
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalStateException("找不到事件的 HandlerList: " + eventClass.getName());
+    }
+
+    private PluginCommand createCommand(String name) {
+        try {
+            Constructor<PluginCommand> constructor = PluginCommand.class.getDeclaredConstructor(String.class, Plugin.class);
+            constructor.setAccessible(true);
+            return constructor.newInstance(name, plugin);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static InputStream resource(String name) throws IOException {
+        InputStream in = StubServer.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("classpath 中找不到 " + name + "，请把 resources 目录加入 classpath");
+        }
+        return in;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, java.lang.reflect.InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    // 允许在插件加载器之外构造并启用插件
+    private static final class HarnessPlugin extends KeyAuthPlugin {
+
+        private HarnessPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+            super(loader, description, dataFolder, file);
+        }
+
+        private void enable() {
+            setEnabled(true);
+        }
+
+        private void disable() {
+            setEnabled(false);
+        }
+    }
+}
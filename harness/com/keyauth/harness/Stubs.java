@@ -0,0 +1,45 @@
+package com.keyauth.harness;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+// 动态代理桩对象的公共工具
+final class Stubs {
+
+    private Stubs() {
+    }
+
+    // 未实现的方法返回类型默认值，集合返回空集合
+    static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive()) {
+            if (type == List.class || type == java.util.Collection.class) return Collections.emptyList();
+            if (type == Set.class) return Collections.emptySet();
+            return null;
+        }
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        if (type == double.class) return 0d;
+        return null;
+    }
+
+    // 处理 equals/hashCode/toString，其余方法返回默认值
+    static Object objectMethod(Object proxy, Method method, Object[] args, String name) {
+        switch (method.getName()) {
+            case "equals":
+                return args != null && args.length == 1 && proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return name;
+            default:
+                return defaultValue(method.getReturnType());
+        }
+    }
+}
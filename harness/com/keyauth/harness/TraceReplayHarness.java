@@ -0,0 +1,247 @@
+package com.keyauth.harness;
+
+import com.keyauth.KeyAuthPlugin;
+import com.keyauth.trace.TraceFormat;
+import com.keyauth.trace.TraceReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * 离线回放：把服务器上录制的事件轨迹（trace.enabled）按原速或加速送进插件的事件处理，
+ * 统计每类事件的耗时。服务器 tick 按轨迹时间推进，踢出、提示等定时任务和线上一样触发。
+ *
+ * 运行方式（harness 目录不打包进插件，先用 javac -cp KeyAuth.jar:spigot-api.jar -d harness-out 编译；
+ * classpath 需要包含编译结果、插件、resources 目录和 Spigot API）：
+ * java -cp harness-out:KeyAuth.jar:spigot-api.jar com.keyauth.harness.TraceReplayHarness --trace trace-20250101-120000.katr --speed 10
+ */
+public class TraceReplayHarness {
+
+    private static final long TICK_MICROS = 50_000;
+    private static final String WRONG_KEY = "replay-wrong";
+
+    private final Options options;
+    private final Map<Integer, StubPlayer> players = new HashMap<>();
+    private final Map<String, Cost> costs = new HashMap<>();
+    private StubServer server;
+    private KeyAuthPlugin plugin;
+    private long skipped;
+    private int kicked;
+
+    public TraceReplayHarness(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        new TraceReplayHarness(options).run();
+    }
+
+    public void run() throws IOException, InterruptedException {
+        server = StubServer.start(options.verbose ? Level.INFO : Level.WARNING);
+        File dataFolder = Files.createTempDirectory("keyauth-replay").toFile();
+
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("key", "replay1");
+        overrides.put("security.hash-key", options.hash);
+        plugin = server.loadPlugin(dataFolder, overrides);
+
+        long records = 0;
+        long traceMicros = 0;
+        long nextTickMicros = 0;
+        long wallStart = System.nanoTime();
+
+        try (TraceReader reader = new TraceReader(options.trace)) {
+            while (reader.next()) {
+                traceMicros = reader.getTimeMicros();
+                // 先把轨迹时间之前应执行的 tick 跑完
+                while (nextTickMicros <= traceMicros) {
+                    pace(wallStart, nextTickMicros);
+                    tick();
+                    nextTickMicros += TICK_MICROS;
+                }
+                pace(wallStart, traceMicros);
+                dispatch(reader);
+                records++;
+            }
+            if (reader.isTruncated()) {
+                System.out.println("轨迹末尾有不完整的记录，已忽略");
+            }
+        }
+
+        // 回放结束后再跑一段时间，让踢出和延迟提示等任务执行完
+        long drainUntil = nextTickMicros + options.drainSeconds * 1_000_000L;
+        while (nextTickMicros <= drainUntil) {
+            tick();
+            nextTickMicros += TICK_MICROS;
+        }
+        for (StubPlayer player : players.values()) {
+            if (player.isKicked()) kicked++;
+        }
+
+        long wallNanos = System.nanoTime() - wallStart;
+        double pluginCost = plugin.getGovernor().getAveragePluginMillis();
+        int verified = plugin.getVerificationCount();
+        server.unloadPlugin();
+        server.getScheduler().shutdown();
+
+        System.out.println("=== KeyAuth 轨迹回放结果 ===");
+        System.out.printf("轨迹: %s records=%d span=%.1fs speed=%s hash=%s%n",
+                options.trace.getFileName(), records, traceMicros / 1e6, options.speed <= 0 ? "max" : options.speed + "x", options.hash);
+        System.out.printf("玩家: sessions=%d verified=%d kicked=%d skipped-events=%d%n", players.size(), verified, kicked, skipped);
+        System.out.printf("%-8s %10s %10s %10s %10s %10s %10s%n", "type", "count", "avg(us)", "p50(us)", "p99(us)", "max(us)", "total(ms)");
+        for (String type : new String[]{"join", "quit", "move", "command", "attempt", "tick"}) {
+            Cost cost = costs.get(type);
+            if (cost == null) continue;
+            long[] sorted = cost.sorted();
+            System.out.printf("%-8s %10d %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                    type, cost.count, cost.total / 1e3 / cost.count, percentile(sorted, 0.50) / 1e3, percentile(sorted, 0.99) / 1e3,
+                    sorted[sorted.length - 1] / 1e3, cost.total / 1e6);
+        }
+        System.out.printf("插件自身: %.3fms/tick wall=%.1fs%n", pluginCost, wallNanos / 1e9);
+    }
+
+    private void dispatch(TraceReader reader) {
+        byte type = reader.getType();
+        int session = reader.getSession();
+        StubPlayer player = players.get(session);
+
+        if (type == TraceFormat.JOIN) {
+            if (player != null && player.isOnline()) {
+                skipped++;
+                return;
+            }
+            long start = System.nanoTime();
+            players.put(session, server.join("Trace" + session, address(session), reader.isOp()));
+            record("join", start);
+            return;
+        }
+
+        // 加入记录被丢弃时按普通玩家补一次加入，不计入耗时
+        if (player == null) {
+            player = server.join("Trace" + session, address(session), false);
+            players.put(session, player);
+        }
+        if (!player.isOnline()) {
+            skipped++;
+            return;
+        }
+
+        long start = System.nanoTime();
+        switch (type) {
+            case TraceFormat.QUIT:
+                server.quit(player);
+                break;
+            case TraceFormat.MOVE:
+                server.move(player, reader.getDx(), reader.getDy(), reader.getDz());
+                break;
+            case TraceFormat.COMMAND:
+                server.command(player, "/" + reader.getCommand());
+                break;
+            case TraceFormat.ATTEMPT:
+                byte outcome = reader.getOutcome();
+                boolean correct = outcome == TraceFormat.OUTCOME_MATCH || outcome == TraceFormat.OUTCOME_CODE;
+                server.command(player, "/key " + (correct ? plugin.getCurrentKey() : WRONG_KEY));
+                break;
+            default:
+                skipped++;
+                return;
+        }
+        record(TraceFormat.typeName(type), start);
+    }
+
+    private void tick() {
+        long start = System.nanoTime();
+        server.getScheduler().tick();
+        record("tick", start);
+    }
+
+    // 原速或加速回放时等到对应的墙钟时间；speed <= 0 时不等待
+    private void pace(long wallStart, long traceMicros) throws InterruptedException {
+        if (options.speed <= 0) return;
+        long targetNanos = wallStart + (long) (traceMicros * 1000 / options.speed);
+        long waitNanos = targetNanos - System.nanoTime();
+        if (waitNanos > 1_000_000) {
+            Thread.sleep(waitNanos / 1_000_000);
+        }
+    }
+
+    private void record(String type, long start) {
+        costs.computeIfAbsent(type, key -> new Cost()).add(System.nanoTime() - start);
+    }
+
+    // 每个会话一个 10.x.x.x 地址
+    private static byte[] address(int session) {
+        return new byte[]{10, (byte) (session >> 16), (byte) (session >> 8), (byte) session};
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+
+    private static final class Cost {
+        private long[] samples = new long[1024];
+        private int count;
+        private long total;
+
+        void add(long nanos) {
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = nanos;
+            total += nanos;
+        }
+
+        long[] sorted() {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+
+    public static final class Options {
+        Path trace;
+        double speed;
+        int drainSeconds = 70;
+        boolean hash;
+        boolean verbose;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--trace":
+                        options.trace = Paths.get(args[++i]);
+                        break;
+                    case "--speed":
+                        options.speed = Double.parseDouble(args[++i]);
+                        break;
+                    case "--drain-seconds":
+                        options.drainSeconds = Integer.parseInt(args[++i]);
+                        break;
+                    case "--hash":
+                        options.hash = true;
+                        break;
+                    case "--verbose":
+                        options.verbose = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("未知参数: " + arg);
+                }
+            }
+            if (options.trace == null) {
+                throw new IllegalArgumentException("缺少参数: --trace <文件>");
+            }
+            return options;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+#!/bin/sh
+# 编译插件与 harness 源码目录，依次运行可自动判定结果的 harness；任一失败时以非零退出码结束。
+# 用法（CI 同样调用此脚本）：harness/run-harnesses.sh path/to/spigot-api.jar
+set -e
+
+if [ -z "$1" ]; then
+    echo "用法: $0 <spigot-api.jar>" >&2
+    exit 2
+fi
+API="$1"
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+OUT=$(mktemp -d)
+trap 'rm -rf "$OUT"' EXIT
+
+javac -encoding UTF-8 -cp "$API" -d "$OUT" $(find "$ROOT/java" "$ROOT/harness" -name "*.java")
+CP="$OUT:$ROOT/resources:$API"
+
+java -cp "$CP" com.keyauth.harness.LoadTestHarness --players-per-second 20 --seconds 30 --warmup-seconds 10
+java -cp "$CP" com.keyauth.harness.LoadTestHarness --players-per-second 20 --seconds 30 --warmup-seconds 10 --hash
+java -cp "$CP" com.keyauth.harness.ProxyHarness
+java -cp "$CP" com.keyauth.harness.ConcurrencyStressHarness --seconds 10 --readers 4
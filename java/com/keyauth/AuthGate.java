@@ -0,0 +1,214 @@
+package com.keyauth;
+
+import com.keyauth.jfr.BlockedCommandEvent;
+import com.keyauth.jfr.BlockedMoveEvent;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.entity.FoodLevelChangeEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.player.PlayerDropItemEvent;
+import org.bukkit.event.player.PlayerInteractEntityEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+
+import java.util.Set;
+import java.util.UUID;
+
+// 统一拦截未验证玩家的行为，只在有未验证玩家在线时注册
+public class AuthGate implements Listener {
+
+    private final Set<UUID> unverifiedPlayers;
+    private final TickGovernor governor;
+    private final MessageCatalog messages;
+    private final PlayerFreezer freezer;
+
+    public AuthGate(Set<UUID> unverifiedPlayers, TickGovernor governor, MessageCatalog messages, PlayerFreezer freezer) {
+        this.unverifiedPlayers = unverifiedPlayers;
+        this.governor = governor;
+        this.messages = messages;
+        this.freezer = freezer;
+    }
+
+    private boolean isBlocked(Entity entity) {
+        return entity instanceof Player && unverifiedPlayers.contains(entity.getUniqueId());
+    }
+
+    private void sendBlockedNotice(Player player) {
+        // 负载较高时限制重复提示的频率
+        if (!governor.allowNotice(player.getUniqueId())) return;
+        messages.of(player).send(player, Message.BLOCKED_NOTICE);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        long start = System.nanoTime();
+        Player player = event.getPlayer();
+
+        // 如果玩家未验证，阻止移动
+        if (isBlocked(player)) {
+            Location anchor = freezer.getAnchor(player.getUniqueId());
+            if (anchor != null) {
+                // 客户端已冻结，正常客户端不会离开锚点所在方块；只允许下落，水平位移和上升都拉回锚点
+                // （无视速度和跳跃属性的客户端、或服务器允许飞行时，不能借此上升或悬停）
+                Location to = event.getTo();
+                if (anchor.getWorld() != to.getWorld()) {
+                    freezer.reanchor(player.getUniqueId(), to);
+                } else if (anchor.getBlockX() != to.getBlockX() || anchor.getBlockZ() != to.getBlockZ() || to.getY() > anchor.getY()) {
+                    Location back = to.clone();
+                    back.setX(anchor.getX());
+                    back.setZ(anchor.getZ());
+                    back.setY(Math.min(to.getY(), anchor.getY()));
+                    event.setTo(back);
+                    sendBlockedNotice(player);
+                    traceMove(player, "client");
+                } else if (to.getY() < anchor.getY()) {
+                    // 下落后以落点为新的锚点，之后不能再回升
+                    freezer.reanchor(player.getUniqueId(), to.clone());
+                }
+            } else if (event.getFrom().getBlockX() != event.getTo().getBlockX() ||
+                    event.getFrom().getBlockY() != event.getTo().getBlockY() ||
+                    event.getFrom().getBlockZ() != event.getTo().getBlockZ()) {
+                event.setTo(event.getFrom());
+                sendBlockedNotice(player);
+                traceMove(player, "rollback");
+            }
+        }
+        governor.record(start);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onPlayerCommand(PlayerCommandPreprocessEvent event) {
+        Player player = event.getPlayer();
+        if (!isBlocked(player)) return;
+
+        long start = System.nanoTime();
+
+        String message = event.getMessage().toLowerCase();
+
+        // 允许验证命令和退出命令
+        if (message.startsWith("/key ") || message.equals("/key") ||
+                message.startsWith("/quit") || message.equals("/quit") ||
+                message.startsWith("/exit") || message.equals("/exit") ||
+                message.startsWith("/keystats") || message.equals("/keystats") ||
+                message.startsWith("/keyinfo") || message.equals("/keyinfo")) {
+            governor.record(start);
+            return;
+        }
+
+        // 阻止未验证玩家使用其他命令
+        event.setCancelled(true);
+        sendBlockedNotice(player);
+        BlockedCommandEvent trace = new BlockedCommandEvent();
+        if (trace.shouldCommit()) {
+            int space = message.indexOf(' ');
+            trace.player = player.getName();
+            trace.command = space > 0 ? message.substring(0, space) : message;
+            trace.commit();
+        }
+        governor.record(start);
+    }
+
+    // 瞬时事件；JFR 未录制时只有一次已内联的开关判断
+    private static void traceMove(Player player, String mode) {
+        BlockedMoveEvent trace = new BlockedMoveEvent();
+        if (trace.shouldCommit()) {
+            trace.player = player.getName();
+            trace.mode = mode;
+            trace.commit();
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onPlayerChat(AsyncPlayerChatEvent event) {
+        if (isBlocked(event.getPlayer())) {
+            event.setCancelled(true);
+            sendBlockedNotice(event.getPlayer());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onPlayerInteract(PlayerInteractEvent event) {
+        if (isBlocked(event.getPlayer())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onPlayerInteractEntity(PlayerInteractEntityEvent event) {
+        if (isBlocked(event.getPlayer())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        if (isBlocked(event.getPlayer())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        if (isBlocked(event.getPlayer())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onInventoryOpen(InventoryOpenEvent event) {
+        if (isBlocked(event.getPlayer())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onInventoryClick(InventoryClickEvent event) {
+        if (isBlocked(event.getWhoClicked())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onDropItem(PlayerDropItemEvent event) {
+        if (isBlocked(event.getPlayer())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onPickupItem(EntityPickupItemEvent event) {
+        if (isBlocked(event.getEntity())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onDamage(EntityDamageEvent event) {
+        // 未验证玩家既不会受到伤害，也不能攻击其他实体
+        if (isBlocked(event.getEntity())) {
+            event.setCancelled(true);
+        } else if (event instanceof EntityDamageByEntityEvent
+                && isBlocked(((EntityDamageByEntityEvent) event).getDamager())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onFoodLevelChange(FoodLevelChangeEvent event) {
+        if (isBlocked(event.getEntity())) {
+            event.setCancelled(true);
+        }
+    }
+}
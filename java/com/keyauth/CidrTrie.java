@@ -0,0 +1,277 @@
+package com.keyauth;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// 只读的 CIDR 前缀树，节点存放在 IntBuffer 中，可以直接映射自缓存文件
+// 每个节点两个 int，分别是 0/1 分支：NONE 表示没有匹配，ALL 表示整段已覆盖，其余为子节点下标
+final class CidrTrie {
+
+    static final int NONE = 0;
+    static final int ALL = -1;
+
+    private static final int MAGIC = 0x4B41544E; // "KATN"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    static final CidrTrie EMPTY = new CidrTrie(IntBuffer.allocate(2), NONE, NONE, 0, 0L);
+
+    private final IntBuffer nodes;
+    private final int v4Root;
+    private final int v6Root;
+    private final int ranges;
+    private final long signature;
+
+    private CidrTrie(IntBuffer nodes, int v4Root, int v6Root, int ranges, long signature) {
+        this.nodes = nodes;
+        this.v4Root = v4Root;
+        this.v6Root = v6Root;
+        this.ranges = ranges;
+        this.signature = signature;
+    }
+
+    int getRanges() {
+        return ranges;
+    }
+
+    int getNodeCount() {
+        return nodes.limit() / 2;
+    }
+
+    long getSignature() {
+        return signature;
+    }
+
+    boolean contains(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        return address instanceof Inet4Address ? containsV4(toInt(bytes, 0)) : containsV6(bytes);
+    }
+
+    // 逐位下降，最多 32 次读取，不分配对象
+    boolean containsV4(int address) {
+        int pointer = v4Root;
+        for (int bit = 31; bit >= 0 && pointer > 0; bit--) {
+            pointer = nodes.get(2 * pointer + ((address >>> bit) & 1));
+        }
+        return pointer == ALL;
+    }
+
+    boolean containsV6(byte[] address) {
+        int pointer = v6Root;
+        for (int bit = 0; bit < 128 && pointer > 0; bit++) {
+            pointer = nodes.get(2 * pointer + bitAt(address, bit));
+        }
+        return pointer == ALL;
+    }
+
+    // 缓存文件：头部 + 节点数组（大端序），签名用于判断源列表是否变化
+    void save(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+        // 每次重建使用独立的临时文件，并发重建不会互相截断；最后的原子替换决定留下哪一份
+        File temp = Files.createTempFile(parent.toPath(), file.getName(), ".tmp").toFile();
+
+        try {
+            write(temp);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private void write(File temp) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(signature);
+            out.writeInt(ranges);
+            out.writeInt(v4Root);
+            out.writeInt(v6Root);
+            out.writeInt(nodes.limit() / 2);
+            for (int i = 0; i < nodes.limit(); i++) {
+                out.writeInt(nodes.get(i));
+            }
+        }
+    }
+
+    // 只读映射缓存文件，节点不进入堆内存；签名不一致时返回 null
+    static CidrTrie map(File file, long expectedSignature) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) return null;
+
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("不是有效的受信任网络缓存文件");
+            }
+            long signature = buffer.getLong();
+            if (signature != expectedSignature) return null;
+
+            int ranges = buffer.getInt();
+            int v4Root = buffer.getInt();
+            int v6Root = buffer.getInt();
+            int nodeCount = buffer.getInt();
+            if (channel.size() != HEADER_BYTES + nodeCount * 8L) {
+                throw new IOException("受信任网络缓存文件已损坏");
+            }
+            IntBuffer nodes = buffer.slice().asIntBuffer();
+            return new CidrTrie(nodes, v4Root, v6Root, ranges, signature);
+        }
+    }
+
+    private static int toInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16 | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static int bitAt(byte[] address, int bit) {
+        return (address[bit >>> 3] >>> (7 - (bit & 7))) & 1;
+    }
+
+    // 构建器：逐条插入后压缩成紧凑的只读前缀树
+    static final class Builder {
+
+        private int[] nodes = new int[1024];
+        private int nodeCount = 1; // 0 号节点保留，下标 0 即 NONE
+        private int v4Root = NONE;
+        private int v6Root = NONE;
+        private int ranges;
+
+        int getRanges() {
+            return ranges;
+        }
+
+        // 解析 "10.0.0.0/8"、"192.168.1.5"、"2001:db8::/32"，格式错误返回 false
+        boolean add(String cidr) {
+            String text = cidr.trim();
+            int slash = text.indexOf('/');
+            String host = slash < 0 ? text : text.substring(0, slash);
+            if (host.isEmpty() || !isAddressLiteral(host)) return false;
+
+            InetAddress address;
+            try {
+                // 只接受字面量地址，不会触发 DNS 查询
+                address = InetAddress.getByName(host);
+            } catch (IOException e) {
+                return false;
+            }
+
+            boolean v4 = address instanceof Inet4Address;
+            int maxPrefix = v4 ? 32 : 128;
+            int prefix;
+            try {
+                prefix = slash < 0 ? maxPrefix : Integer.parseInt(text.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (prefix < 0 || prefix > maxPrefix) return false;
+
+            insert(address.getAddress(), prefix, v4);
+            ranges++;
+            return true;
+        }
+
+        private void insert(byte[] address, int prefix, boolean v4) {
+            int root = v4 ? v4Root : v6Root;
+            if (root == ALL) return;
+            if (prefix == 0) {
+                setRoot(v4, ALL);
+                return;
+            }
+            if (root == NONE) {
+                root = newNode();
+                setRoot(v4, root);
+            }
+
+            int pointer = root;
+            for (int bit = 0; bit < prefix; bit++) {
+                int slot = 2 * pointer + bitAt(address, bit);
+                int child = nodes[slot];
+                // 已被更短的前缀覆盖
+                if (child == ALL) return;
+                if (bit == prefix - 1) {
+                    // 原有的更长前缀成为不可达节点，压缩时丢弃
+                    nodes[slot] = ALL;
+                    return;
+                }
+                if (child == NONE) {
+                    child = newNode();
+                    nodes[slot] = child;
+                }
+                pointer = child;
+            }
+        }
+
+        private void setRoot(boolean v4, int root) {
+            if (v4) {
+                v4Root = root;
+            } else {
+                v6Root = root;
+            }
+        }
+
+        private int newNode() {
+            if (2 * nodeCount + 2 > nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length * 2);
+            }
+            return nodeCount++;
+        }
+
+        // 去掉不可达节点，并把两个分支都已覆盖的节点合并为 ALL
+        CidrTrie build(long signature) {
+            Compactor compactor = new Compactor(nodes, nodeCount);
+            int compactV4 = compactor.copy(v4Root);
+            int compactV6 = compactor.copy(v6Root);
+            return new CidrTrie(IntBuffer.wrap(compactor.out, 0, compactor.count * 2).slice(), compactV4, compactV6, ranges, signature);
+        }
+
+        // IPv4 只允许数字和点，IPv6 只允许十六进制、冒号和点（内嵌 IPv4）
+        private static boolean isAddressLiteral(String host) {
+            boolean v6 = host.indexOf(':') >= 0;
+            if (!v6 && host.indexOf('.') < 0) return false;
+            for (int i = 0; i < host.length(); i++) {
+                char c = host.charAt(i);
+                boolean digit = c >= '0' && c <= '9';
+                boolean hex = (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+                if (!digit && c != '.' && !(v6 && (hex || c == ':'))) return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class Compactor {
+
+        private final int[] source;
+        private int[] out;
+        private int count = 1;
+
+        private Compactor(int[] source, int sourceCount) {
+            this.source = source;
+            this.out = new int[Math.max(2, sourceCount * 2)];
+        }
+
+        // 后序复制，递归深度不超过 128
+        private int copy(int pointer) {
+            if (pointer <= 0) return pointer;
+
+            int zero = copy(source[2 * pointer]);
+            int one = copy(source[2 * pointer + 1]);
+            if (zero == ALL && one == ALL) return ALL;
+
+            int node = count++;
+            out[2 * node] = zero;
+            out[2 * node + 1] = one;
+            return node;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.keyauth;
+
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// 监听插件目录中的 config.yml：连续修改时等静默一段时间再处理
+// 解析和比较都在监听线程上完成，只把变化的路径交给主线程应用
+class ConfigWatcher {
+
+    private static final String CONFIG_FILE = "config.yml";
+
+    private final KeyAuthPlugin plugin;
+    private final long debounceMillis;
+    private Thread watcher;
+    private WatchService watchService;
+    // 只在监听线程上读写：上次处理时文件的内容
+    private YamlConfiguration baseline;
+
+    ConfigWatcher(KeyAuthPlugin plugin, long debounceMillis) {
+        this.plugin = plugin;
+        this.debounceMillis = debounceMillis;
+    }
+
+    void start() throws IOException {
+        Path directory = plugin.getDataFolder().toPath();
+        WatchService service = directory.getFileSystem().newWatchService();
+        directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchService = service;
+        File file = new File(plugin.getDataFolder(), CONFIG_FILE);
+
+        watcher = new Thread(() -> {
+            baseline = parse(file);
+            try {
+                while (true) {
+                    if (!isConfigEvent(service.take())) continue;
+                    // 编辑器保存时常连续触发多次事件，静默 debounceMillis 后才读取
+                    WatchKey next;
+                    while ((next = service.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                        isConfigEvent(next);
+                    }
+                    reload(file);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException ignored) {
+                // 插件关闭
+            }
+        }, "KeyAuth-ConfigWatch");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    void stop() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+                // 关闭失败不影响后续
+            }
+            watchService = null;
+        }
+        if (watcher != null) {
+            watcher.interrupt();
+            watcher = null;
+        }
+    }
+
+    private static boolean isConfigEvent(WatchKey key) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            Object context = event.context();
+            if (context != null && CONFIG_FILE.equals(context.toString())) relevant = true;
+        }
+        key.reset();
+        return relevant;
+    }
+
+    private void reload(File file) throws InterruptedException {
+        // 插件正在写入时跳过，写入完成会再触发一次事件
+        long saveStamp = plugin.getConfigSaveStamp();
+        if ((saveStamp & 1) != 0) return;
+        YamlConfiguration current = parse(file);
+        if (current == null) return;
+        if (baseline == null) {
+            baseline = current;
+            return;
+        }
+
+        Map<String, Object> changes = diff(baseline, current);
+        if (changes.isEmpty()) {
+            baseline = current;
+            return;
+        }
+
+        // 哈希模式下新写入的明文密钥在这里完成推导，主线程不做 PBKDF2 计算
+        KeyHasher hasher = null;
+        Object key = changes.get("key");
+        if (plugin.isHashKey() && key instanceof String && !((String) key).isEmpty()) {
+            hasher = KeyHasher.create((String) key, plugin.getHashIterations());
+        }
+
+        // 等主线程应用完再更新基准：应用期间插件写回了配置时，以写回的内容为新的基准，
+        // 这样插件写入造成的文件事件不会被当成管理员的修改，管理员的修改也不会丢失
+        KeyHasher precomputed = hasher;
+        CompletableFuture<String> applied = new CompletableFuture<>();
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            try {
+                applied.complete(plugin.applyConfigChanges(changes, precomputed, saveStamp));
+            } catch (RuntimeException e) {
+                applied.completeExceptionally(e);
+            }
+        });
+
+        String written;
+        try {
+            written = applied.get();
+        } catch (ExecutionException e) {
+            plugin.getLogger().warning("应用 config.yml 修改失败: " + e.getCause());
+            baseline = current;
+            return;
+        }
+        baseline = written != null ? parseWritten(written, current) : current;
+    }
+
+    private YamlConfiguration parseWritten(String content, YamlConfiguration fallback) {
+        YamlConfiguration config = new YamlConfiguration();
+        try {
+            config.loadFromString(content);
+            return config;
+        } catch (InvalidConfigurationException e) {
+            return fallback;
+        }
+    }
+
+    // 语法错误时保留上次的内容，避免把整份配置当成被删除
+    private YamlConfiguration parse(File file) {
+        YamlConfiguration config = new YamlConfiguration();
+        try {
+            config.load(file);
+            return config;
+        } catch (IOException | InvalidConfigurationException e) {
+            plugin.getLogger().warning("config.yml 读取失败，本次修改未生效: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // 只比较叶子值，返回变化的路径和新值（被删除的路径值为 null）
+    static Map<String, Object> diff(YamlConfiguration before, YamlConfiguration after) {
+        Set<String> paths = new HashSet<>(before.getKeys(true));
+        paths.addAll(after.getKeys(true));
+
+        Map<String, Object> changes = new LinkedHashMap<>();
+        for (String path : paths) {
+            if (before.isConfigurationSection(path) || after.isConfigurationSection(path)) continue;
+            Object value = after.get(path);
+            if (!Objects.equals(before.get(path), value)) {
+                changes.put(path, value);
+            }
+        }
+        return changes;
+    }
+}
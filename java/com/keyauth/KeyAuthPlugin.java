@@ -1,101 +1,872 @@
 package com.keyauth;
 
+import com.keyauth.api.KeyAuthProvider;
+import com.keyauth.api.KeyRotatedEvent;
+import com.keyauth.api.PlayerKeyVerifiedEvent;
+import com.keyauth.api.StatsFormat;
+import com.keyauth.jfr.ConfigReloadEvent;
+import com.keyauth.jfr.JoinPromptEvent;
+import com.keyauth.jfr.KeyRotationEvent;
+import com.keyauth.jfr.VerifyAttemptEvent;
+import com.keyauth.jfr.WebExportEvent;
+import com.keyauth.trace.TraceRecorder;
 import org.bukkit.Bukkit;
-import org.bukkit.ChatColor;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.PluginCommand;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
-import org.bukkit.event.player.PlayerMoveEvent;
-import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.player.PlayerLocaleChangeEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
 import org.bukkit.scheduler.BukkitRunnable;
+import org.spigotmc.event.player.PlayerSpawnLocationEvent;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class KeyAuthPlugin extends JavaPlugin implements Listener {
 
+    // 哈希在推导期间被替换时重新校验的次数
+    private static final int STALE_RETRIES = 2;
+    // DateTimeFormatter 不可变且线程安全，导出文件名的时间戳共用同一个实例
+    static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final DateTimeFormatter WEB_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
     private Set<UUID> authenticatedPlayers;
+    private Set<UUID> unverifiedPlayers;
+    private Set<UUID> verifyingPlayers;
+    private Set<UUID> trustedPlayers;
     private Map<UUID, Long> joinTimeMap;
-    private List<Long> verificationTimes;
-    private String currentKey;
-    private int kickDelay;
-    private boolean autoUpdate;
-    private String webPath;
-    private int updateHour;
-    private long nextUpdateTime;
+    private volatile VerificationLog verificationLog;
+    private volatile String currentKey;
+    private volatile PluginSettings settings;
+    private volatile long nextUpdateTime;
+    private volatile boolean hashKey;
+    private volatile int hashIterations;
+    private KeyVerifier keyVerifier;
+    private OneTimeCodeStore codeStore;
+    private boolean codesExclusive;
+    private TickGovernor governor;
+    private boolean exportDeferred;
+    private KeyAuthService service;
+    private AuthGate authGate;
+    private boolean authGateRegistered;
+    private TrustedNetworks trustedNetworks;
+    private ProxyBridge proxyBridge;
+    private int proxyGraceTicks;
+    private KeySync keySync;
+    private MessageCatalog messages;
+    private ConfigWatcher configWatcher;
+    // 插件写 config.yml 的前后各加一，奇数表示正在写入
+    private volatile long configSaveStamp;
+    private PlayerFreezer freezer;
+    private LimboWorld limbo;
+    private RealmRegistry realms;
+    private TraceRecorder traceRecorder;
+    // 只在 onEnable 期间不为 null
+    private StartupProfile startup;
+    // 只在主线程访问：启动时的统计恢复尚未合并前不保存，避免用启用后的少量记录覆盖历史
+    private boolean statisticsPending;
+    // 只在主线程访问：哈希模式的每日更新正在校验线程上推导
+    private boolean hashRotationPending;
+    // 明文未知而跳过导出时只提示一次，之后成功导出时复位；导出可能在异步线程上执行
+    private volatile boolean unpublishedLogged;
+
+    public KeyAuthPlugin() {
+        super();
+    }
+
+    // 供离线压测等不经过插件加载器的场景使用
+    protected KeyAuthPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
 
     @Override
     public void onEnable() {
+        startup = new StartupProfile();
         // 保存默认配置
         saveDefaultConfig();
+        // JFR 配置文件，用于 jcmd <pid> JFR.start settings=default,plugins/KeyAuth/keyauth.jfc
+        if (!new File(getDataFolder(), "keyauth.jfc").exists()) {
+            saveResource("keyauth.jfc", false);
+        }
 
         // 初始化变量
         authenticatedPlayers = ConcurrentHashMap.newKeySet();
+        unverifiedPlayers = ConcurrentHashMap.newKeySet();
+        verifyingPlayers = ConcurrentHashMap.newKeySet();
+        trustedPlayers = ConcurrentHashMap.newKeySet();
         joinTimeMap = new ConcurrentHashMap<>();
-        verificationTimes = Collections.synchronizedList(new ArrayList<>());
-
-        // 加载配置
-        reloadPluginConfig();
-
-        // 计算下次更新时间
-        calculateNextUpdateTime();
+        verificationLog = new VerificationLog();
+        service = new KeyAuthService(this, authenticatedPlayers);
+        governor = new TickGovernor(this);
+        messages = new MessageCatalog(this);
+        freezer = new PlayerFreezer();
+        realms = new RealmRegistry();
+        authGate = new AuthGate(unverifiedPlayers, governor, messages, freezer);
+        trustedNetworks = new TrustedNetworks(this);
+        keyVerifier = new KeyVerifier(Math.max(1, getConfig().getInt("security.verifier-threads", 2)));
+        markStartup("init");
+
+        // 加载配置；网页导出留到后台，此时不写文件
+        loadConfiguration();
 
         // 注册事件
         getServer().getPluginManager().registerEvents(this, this);
+        getServer().getPluginManager().registerEvents(service, this);
+
+        // 重载插件时已在线的玩家同样需要验证
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (player.isOp()) {
+                authenticatedPlayers.add(player.getUniqueId());
+            } else if (trustedNetworks.isTrusted(player)) {
+                authenticatedPlayers.add(player.getUniqueId());
+                trustedPlayers.add(player.getUniqueId());
+            } else {
+                joinTimeMap.put(player.getUniqueId(), System.currentTimeMillis());
+                unverifiedPlayers.add(player.getUniqueId());
+                freezer.freeze(player);
+            }
+        }
+        updateAuthGate();
+        markStartup("listeners");
 
         // 注册命令
-        this.getCommand("key").setExecutor(new KeyCommand(this));
-        this.getCommand("keyreload").setExecutor(new KeyReloadCommand(this));
-        this.getCommand("keystats").setExecutor(new KeyStatsCommand(this));
-        this.getCommand("keyinfo").setExecutor(new KeyInfoCommand(this));
+        registerCommand("key", new KeyCommand(this));
+        registerCommand("keyreload", new KeyReloadCommand(this));
+        registerCommand("keystats", new KeyStatsCommand(this));
+        registerCommand("keyinfo", new KeyInfoCommand(this));
+        registerCommand("keycodes", new KeyCodesCommand(this));
 
         // 启动定时任务
         startScheduledTasks();
+        governor.start();
+        startConfigWatcher();
+
+        // 对外开放接口
+        KeyAuthProvider.register(service);
+        markStartup("tasks");
+
+        // 到这里已经可以拦截和验证玩家，网页导出和统计恢复在后台完成
+        startDeferredTasks();
 
         getLogger().info("密钥认证插件已启用！");
-        getLogger().info("当前密钥: " + currentKey);
+        getLogger().info("当前密钥: " + describeKey());
         getLogger().info("下次更新时间: " + new Date(nextUpdateTime));
+        getLogger().info("启用耗时 " + startup.totalMillis() + "ms（" + startup + "）");
+        startup = null;
+    }
+
+    private void markStartup(String phase) {
+        StartupProfile profile = startup;
+        if (profile != null) {
+            profile.mark(phase);
+        }
+    }
+
+    // 启动后的后台任务：导出网页文件（下次更新时间已算好）、恢复上次关服时保存的验证统计
+    private void startDeferredTasks() {
+        // 多服同步时尚未读到共享状态，由读到后的 applySharedKeyState 导出
+        boolean exportDefault = keySync == null;
+        String key = currentKey;
+        long nextUpdate = nextUpdateTime;
+        boolean hashed = hashKey;
+        String path = settings.webPath;
+        List<KeyRealm> realmList = new ArrayList<>(realms.all());
+
+        boolean persist = getConfig().getBoolean("statistics.persist", true);
+        statisticsPending = persist;
+        VerificationLog expected = verificationLog;
+        Map<String, VerificationLog> expectedRealmLogs = new HashMap<>();
+        for (KeyRealm realm : realmList) {
+            expectedRealmLogs.put(realm.name, realm.getLog());
+        }
+        long enabledAt = System.nanoTime();
+
+        Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+            StartupProfile profile = new StartupProfile();
+            if (exportDefault) {
+                writeWebFiles(path, key, nextUpdate, hashed);
+            }
+            for (KeyRealm realm : realmList) {
+                writeWebFiles(realm.webPath, realm.getKey(), realm.getNextUpdateTime(), false);
+            }
+            profile.mark("web");
+
+            Map<String, VerificationLog> restored = new HashMap<>();
+            if (persist) {
+                readStatistics(null, restored);
+                for (KeyRealm realm : realmList) {
+                    readStatistics(realm.name, restored);
+                }
+            }
+            profile.mark("stats");
+
+            runOnMainThread(() -> {
+                int count = applyRestoredStatistics(restored, expected, expectedRealmLogs);
+                statisticsPending = false;
+                getLogger().info("后台启动任务完成（启用后 " + StartupProfile.millis(System.nanoTime() - enabledAt) + "ms，恢复 "
+                        + count + " 条验证记录）: " + profile);
+            });
+        });
+    }
+
+    private File getStatisticsFile(String realm) {
+        return new File(getDataFolder(), "stats/" + (realm == null ? "verifications.bin" : "verifications-" + realm + ".bin"));
+    }
+
+    // 后台线程调用：读入新的存储，尚未发布
+    private void readStatistics(String realm, Map<String, VerificationLog> restored) {
+        File file = getStatisticsFile(realm);
+        if (!file.exists()) return;
+
+        VerificationLog log = new VerificationLog();
+        try {
+            StatsExporter.restore(file.toPath(), log);
+            restored.put(realm == null ? "" : realm, log);
+        } catch (IOException e) {
+            getLogger().warning("无法恢复验证统计 " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    // 主线程：启用后新增的记录追加到恢复的记录之后再替换；期间统计已被清空的不再恢复
+    private int applyRestoredStatistics(Map<String, VerificationLog> restored, VerificationLog expected, Map<String, VerificationLog> expectedRealmLogs) {
+        int count = 0;
+        VerificationLog log = restored.get("");
+        if (log != null && verificationLog == expected) {
+            count += log.size();
+            verificationLog = appendTo(log, expected);
+        }
+        for (Map.Entry<String, VerificationLog> entry : expectedRealmLogs.entrySet()) {
+            KeyRealm realm = realms.find(entry.getKey());
+            VerificationLog realmLog = restored.get(entry.getKey());
+            if (realm != null && realmLog != null && realm.getLog() == entry.getValue()) {
+                count += realmLog.size();
+                realm.replaceLog(appendTo(realmLog, entry.getValue()));
+            }
+        }
+        return count;
+    }
+
+    private static VerificationLog appendTo(VerificationLog target, VerificationLog recent) {
+        try {
+            recent.snapshot().forEach(target::add);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return target;
+    }
+
+    // 关服时同步写出，下次启动在后台恢复
+    private void saveStatistics() {
+        if (!getConfig().getBoolean("statistics.persist", true)) return;
+        if (statisticsPending) {
+            getLogger().warning("验证统计尚未恢复完成，本次不保存，保留上次的统计文件（启用后的 " + verificationLog.size() + " 条记录未保存）");
+            return;
+        }
+        saveStatistics(null, verificationLog);
+        for (KeyRealm realm : realms.all()) {
+            saveStatistics(realm.name, realm.getLog());
+        }
+    }
+
+    private void saveStatistics(String realm, VerificationLog log) {
+        try {
+            StatsExporter.export(log.snapshot(), getStatisticsFile(realm).toPath(), StatsFormat.BINARY);
+        } catch (IOException e) {
+            getLogger().warning("无法保存验证统计: " + e.getMessage());
+        }
     }
 
     @Override
     public void onDisable() {
+        KeyAuthProvider.unregister();
+        if (configWatcher != null) {
+            configWatcher.stop();
+            configWatcher = null;
+        }
+        if (keySync != null) {
+            keySync.stop();
+            keySync = null;
+        }
+        if (proxyBridge != null) {
+            proxyBridge.unregister();
+            proxyBridge = null;
+        }
+        if (governor != null) {
+            governor.stop();
+        }
+        if (service != null) {
+            service.shutdown();
+        }
+        if (keyVerifier != null) {
+            keyVerifier.shutdown();
+        }
+        if (codeStore != null) {
+            saveCodeStore();
+        }
+        if (verificationLog != null && realms != null) {
+            saveStatistics();
+        }
+        if (freezer != null) {
+            freezer.unfreezeAll(Bukkit.getOnlinePlayers());
+        }
+        if (limbo != null) {
+            limbo.saveLocations();
+            limbo = null;
+        }
+        if (realms != null) {
+            realms.clear();
+        }
+        if (traceRecorder != null) {
+            traceRecorder.stop();
+            traceRecorder = null;
+        }
         authenticatedPlayers.clear();
+        unverifiedPlayers.clear();
+        verifyingPlayers.clear();
+        trustedPlayers.clear();
         joinTimeMap.clear();
+        if (messages != null) {
+            messages.clear();
+        }
         getLogger().info("密钥认证插件已禁用！");
     }
 
+    private void registerCommand(String name, CommandExecutor executor) {
+        PluginCommand command = this.getCommand(name);
+        if (command == null) {
+            getLogger().warning("命令未在 plugin.yml 中注册: " + name);
+            return;
+        }
+        command.setExecutor(executor);
+    }
+
     public void reloadPluginConfig() {
+        ConfigReloadEvent trace = new ConfigReloadEvent();
+        trace.begin();
+        String exportedBefore = webExportState();
+        loadConfiguration();
+
+        // 只有网页内容会变化时才重新导出
+        boolean export = !webExportState().equals(exportedBefore);
+        if (export) {
+            saveKeyToWebFile();
+        }
+        for (KeyRealm realm : realms.all()) {
+            saveRealmToWebFile(realm);
+        }
+        traceReload(trace, "command", -1, export);
+    }
+
+    // 读取配置并应用，不导出网页文件
+    private void loadConfiguration() {
         this.reloadConfig();
-        this.currentKey = this.getConfig().getString("key", "default123");
-        this.kickDelay = this.getConfig().getInt("kick-delay", 60);
-        this.autoUpdate = this.getConfig().getBoolean("auto-update.enabled", true);
-        this.webPath = this.getConfig().getString("auto-update.web-path", "plugins/KeyAuth/web/key.txt");
-        this.updateHour = this.getConfig().getInt("auto-update.update-hour", 12);
+        messages.load(getConfig().getString("messages.default-locale", "zh_CN"));
+        markStartup("messages");
+        this.hashKey = this.getConfig().getBoolean("security.hash-key", false);
+        this.hashIterations = this.getConfig().getInt("security.iterations", 100000);
+        if (hashKey) {
+            loadHashedKey();
+        } else {
+            this.currentKey = this.getConfig().getString("key", "default123");
+            keyVerifier.setHasher(null);
+        }
+        this.settings = PluginSettings.from(getConfig());
+        // 首次加载时先算好下次更新时间，多服同步初始化共享状态时会用到
+        if (nextUpdateTime == 0) {
+            calculateNextUpdateTime();
+        }
+        markStartup("key");
+        configureFreezer();
+        configureLimbo();
+        markStartup("limbo");
+        configureRealms();
+        configureTrace();
+        loadCodeStore();
+        markStartup("realms+codes");
+        governor.configure(getConfig());
+        trustedNetworks.configure(getConfig());
+        markStartup("trusted-networks");
+        configureProxyBridge();
+        configureKeySync();
+        markStartup("proxy+sync");
+    }
+
+    private void configureFreezer() {
+        freezer.configure(getConfig().getString("freeze.mode", "client"), Bukkit.getOnlinePlayers());
+        // 切换到客户端冻结时，已在线的未验证玩家立即冻结
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (unverifiedPlayers.contains(player.getUniqueId())) {
+                freezer.freeze(player);
+            }
+        }
+    }
+
+    private void configureLimbo() {
+        String name = getConfig().getString("limbo.world", "keyauth_limbo");
+        boolean enabled = getConfig().getBoolean("limbo.enabled", false);
+        if (limbo != null && (!enabled || !limbo.getName().equals(name))) {
+            // 关闭或更换世界时，仍在旧等待世界中的玩家先送回真实位置
+            limbo.releaseAll(Bukkit.getOnlinePlayers());
+            limbo.saveLocations();
+            limbo = null;
+        }
+        if (enabled && limbo == null) {
+            limbo = LimboWorld.load(this, name);
+            if (limbo == null) {
+                getLogger().warning("无法创建等待世界 " + name + "，未验证玩家将出生在原位置");
+            }
+        }
+    }
 
-        // 保存当前密钥到网站文件
+    private void configureRealms() {
+        if (realms.configure(getConfig(), settings.kickDelay, System.currentTimeMillis())) {
+            // 新增的域生成了初始密钥
+            saveConfig();
+        }
+
+        // 域的定义可能已变化，重新确定在线玩家所属的域
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            KeyRealm before = realms.get(player.getUniqueId());
+            KeyRealm after = realms.resolve(player, realmWorld(player));
+            if (!sameRealm(before, after)) {
+                enterRealm(player, after);
+            }
+        }
+        for (KeyRealm realm : realms.all()) {
+            if (realm.webPath.equals(settings.webPath)) {
+                getLogger().warning("密钥域 " + realm.name + " 的 web-path 与默认密钥相同，会覆盖默认密钥的网页文件");
+            }
+        }
+    }
+
+    // 只在开启时注册录制监听器；重载时继续写入同一个文件
+    private void configureTrace() {
+        boolean enabled = getConfig().getBoolean("trace.enabled", false);
+        if (!enabled && traceRecorder != null) {
+            HandlerList.unregisterAll(traceRecorder);
+            traceRecorder.stop();
+            traceRecorder = null;
+        } else if (enabled && traceRecorder == null) {
+            String name = "trace-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".katr";
+            File file = new File(new File(getDataFolder(), "traces"), name);
+            long maxBytes = Math.max(1, getConfig().getLong("trace.max-megabytes", 256)) * 1024 * 1024;
+            try {
+                traceRecorder = TraceRecorder.start(file.toPath(), maxBytes, getLogger(), this::onTraceLimit);
+            } catch (IOException e) {
+                getLogger().warning("无法开始录制事件轨迹: " + e.getMessage());
+                return;
+            }
+            getServer().getPluginManager().registerEvents(traceRecorder, this);
+            getLogger().info("正在录制事件轨迹: traces/" + name);
+        }
+    }
+
+    // 录制器在事件处理中达到上限，下一 tick 再注销并结束写出线程；/keyreload 后开始新的录制
+    private void onTraceLimit(TraceRecorder recorder) {
+        Bukkit.getScheduler().runTask(this, () -> {
+            if (traceRecorder != recorder) return;
+            HandlerList.unregisterAll(recorder);
+            recorder.stop();
+            traceRecorder = null;
+        });
+    }
+
+    private static boolean sameRealm(KeyRealm a, KeyRealm b) {
+        return a == b || (a != null && b != null && a.name.equals(b.name));
+    }
+
+    // 等待世界中的玩家按验证后要去的真实世界确定所属的域
+    private String realmWorld(Player player) {
+        LimboWorld current = limbo;
+        if (current != null && current.contains(player)) {
+            return current.getRealWorldName(player.getUniqueId());
+        }
+        return player.getWorld().getName();
+    }
+
+    private void startConfigWatcher() {
+        if (!getConfig().getBoolean("hot-reload.enabled", true)) return;
+        configWatcher = new ConfigWatcher(this, Math.max(100, getConfig().getLong("hot-reload.debounce-millis", 500)));
+        try {
+            configWatcher.start();
+        } catch (IOException e) {
+            configWatcher = null;
+            getLogger().warning("无法监听配置文件，修改后请使用 /keyreload: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void saveConfig() {
+        configSaveStamp++;
+        try {
+            super.saveConfig();
+        } finally {
+            configSaveStamp++;
+        }
+    }
+
+    long getConfigSaveStamp() {
+        return configSaveStamp;
+    }
+
+    // 主线程调用：只应用 config.yml 中变化的部分，其余设置和网页文件保持不变
+    // 期间写回过配置时返回写回的内容，供监听线程作为新的比较基准，否则返回 null
+    String applyConfigChanges(Map<String, Object> changes, KeyHasher precomputed, long saveStamp) {
+        // 读取文件后插件又写过配置（例如密钥更新），文件中管理员的修改已被覆盖：
+        // 插件写入的密钥路径以内存为准，其余修改合并进内存后重新写回文件
+        boolean overwritten = saveStamp != configSaveStamp;
+        if (overwritten) {
+            List<String> ignored = new ArrayList<>();
+            changes.keySet().removeIf(path -> {
+                if (!isPluginWrittenPath(path)) return false;
+                ignored.add(path);
+                return true;
+            });
+            if (!ignored.isEmpty()) {
+                getLogger().warning("密钥在修改 config.yml 期间已更新，以下修改未生效: " + String.join(", ", ignored));
+            }
+            if (changes.isEmpty()) return getConfig().saveToString();
+        }
+        long start = System.nanoTime();
+        ConfigReloadEvent trace = new ConfigReloadEvent();
+        trace.begin();
+        // 先同步内存中的配置，之后 saveConfig 不会覆盖管理员的修改
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            getConfig().set(change.getKey(), change.getValue());
+        }
+
+        boolean keyChanged = false;
+        boolean localeChanged = false;
+        boolean realmsChanged = false;
+        List<String> pending = new ArrayList<>();
+        for (String path : changes.keySet()) {
+            if (path.equals("key") || path.startsWith("key-")) {
+                keyChanged = true;
+            } else if (path.startsWith("messages.")) {
+                localeChanged = true;
+            } else if (path.startsWith("realms.")) {
+                realmsChanged = true;
+            } else if (!path.equals("kick-delay") && !path.startsWith("auto-update.") && !path.startsWith("title.")) {
+                pending.add(path);
+            }
+        }
+
+        PluginSettings previous = settings;
+        PluginSettings current = PluginSettings.from(getConfig());
+        settings = current;
+        boolean export = !current.webPath.equals(previous.webPath);
+
+        if (localeChanged) {
+            messages.load(getConfig().getString("messages.default-locale", "zh_CN"));
+        }
+        // 多服同步时更新时间由共享目录决定
+        if (current.updateHour != previous.updateHour && keySync == null) {
+            calculateNextUpdateTime();
+            export = true;
+        }
+        if (keyChanged) {
+            export |= applyKeyFromConfig(precomputed);
+        }
+        if (realmsChanged) {
+            configureRealms();
+            for (KeyRealm realm : realms.all()) {
+                saveRealmToWebFile(realm);
+            }
+        }
+        if (export) {
+            saveKeyToWebFile();
+        }
+
+        if (!pending.isEmpty()) {
+            getLogger().info("以下设置需要 /keyreload 才能生效: " + String.join(", ", pending));
+        }
+        if (pending.size() < changes.size()) {
+            getLogger().info("配置已自动重载: " + String.join(", ", changes.keySet()));
+        }
+        if (overwritten) {
+            saveConfig();
+        }
+        traceReload(trace, "watcher", changes.size(), export);
+        governor.record(start);
+        return configSaveStamp != saveStamp ? getConfig().saveToString() : null;
+    }
+
+    // 插件自己会写回的路径：默认密钥及其哈希、各域的密钥
+    private static boolean isPluginWrittenPath(String path) {
+        return path.equals("key") || path.startsWith("key-") || (path.startsWith("realms.") && path.endsWith(".key"));
+    }
+
+    // 以下 trace 方法在 JFR 未录制时 shouldCommit 直接返回 false，不填充字段
+    private static void traceReload(ConfigReloadEvent trace, String source, int changedPaths, boolean exported) {
+        trace.end();
+        if (trace.shouldCommit()) {
+            trace.source = source;
+            trace.changedPaths = changedPaths;
+            trace.exported = exported;
+            trace.commit();
+        }
+    }
+
+    private static void traceRotation(KeyRotationEvent trace, String source, long epoch, int reverified, long nextUpdate) {
+        trace.end();
+        if (trace.shouldCommit()) {
+            trace.source = source;
+            trace.epoch = epoch;
+            trace.reverified = reverified;
+            trace.nextUpdate = nextUpdate;
+            trace.commit();
+        }
+    }
+
+    // 返回密钥是否真的改变；插件自己写回配置时内容相同，不会触发导出
+    private boolean applyKeyFromConfig(KeyHasher precomputed) {
+        if (keySync != null) {
+            getLogger().warning("已开启多服密钥同步，config.yml 中的密钥修改已忽略");
+            return false;
+        }
+        if (!hashKey) {
+            String key = getConfig().getString("key", "default123");
+            if (key.equals(currentKey)) return false;
+            currentKey = key;
+            return true;
+        }
+
+        KeyHasher before = keyVerifier.getHasher();
+        String plainKey = getConfig().getString("key");
+        if (precomputed != null && plainKey != null && !plainKey.isEmpty()) {
+            storeHashedKey(precomputed);
+            currentKey = plainKey;
+        } else {
+            loadHashedKey();
+        }
+        return keyVerifier.getHasher() != before;
+    }
+
+    // 网页文件的全部输入，不变时无需重新导出
+    private String webExportState() {
+        PluginSettings current = settings;
+        if (current == null) return "";
+        KeyHasher hasher = keyVerifier.getHasher();
+        return current.webPath + '\n' + currentKey + '\n' + (hasher != null ? hasher.getHash() : "") + '\n' + nextUpdateTime + '\n' + hashKey;
+    }
+
+    private void configureProxyBridge() {
+        if (proxyBridge != null) {
+            proxyBridge.unregister();
+            proxyBridge = null;
+        }
+        if (!getConfig().getBoolean("proxy.enabled", false)) return;
+
+        String secret = getConfig().getString("proxy.secret", "");
+        if (secret == null || secret.length() < 16) {
+            getLogger().warning("已开启群组服验证，但 proxy.secret 少于 16 个字符，已忽略");
+            return;
+        }
+        this.proxyGraceTicks = Math.max(0, getConfig().getInt("proxy.grace-ticks", 20));
+        proxyBridge = new ProxyBridge(this, secret, getConfig().getLong("proxy.max-message-age-seconds", 30) * 1000L);
+        proxyBridge.register();
+    }
+
+    private void configureKeySync() {
+        if (!getConfig().getBoolean("sync.enabled", false)) {
+            if (keySync != null) {
+                keySync.stop();
+                keySync = null;
+            }
+            return;
+        }
+        if (keySync == null) {
+            keySync = new KeySync(this);
+        }
+        keySync.configure(getConfig());
+    }
+
+    // 共享目录为空时用本节点的密钥初始化；哈希模式下没有哈希时无法初始化
+    KeySync.State snapshotKeyState(String nodeId) {
+        if (hashKey) {
+            KeyHasher hasher = keyVerifier.getHasher();
+            if (hasher == null) return null;
+            return new KeySync.State(0, nodeId, nextUpdateTime, null, hasher.getSalt(), hasher.getHash(), hasher.getIterations(), currentKey);
+        }
+        return new KeySync.State(0, nodeId, nextUpdateTime, currentKey, null, null, 0, currentKey);
+    }
+
+    // 主线程调用：采用共享目录中纪元号更大（或同纪元下文件中最新）的密钥状态
+    void applySharedKeyState(KeySync.State state, boolean announce) {
+        KeySync sync = keySync;
+        if (sync == null || !sync.accepts(state)) return;
+        if (state.isHashed() != hashKey) {
+            getLogger().warning("共享密钥与本服的 security.hash-key 设置不一致，已忽略，请统一各子服配置");
+            return;
+        }
+
+        long start = System.nanoTime();
+        KeyRotationEvent trace = new KeyRotationEvent();
+        trace.begin();
+        boolean changed;
+        if (state.isHashed()) {
+            KeyHasher previous = keyVerifier.getHasher();
+            changed = previous == null || !previous.getHash().equals(state.hash);
+            if (changed) {
+                keyVerifier.setHasher(KeyHasher.load(state.salt, state.hash, state.iterations));
+                currentKey = state.plainKey;
+                getConfig().set("key", null);
+                getConfig().set("key-salt", state.salt);
+                getConfig().set("key-hash", state.hash);
+                getConfig().set("key-iterations", state.iterations);
+                saveConfig();
+            }
+        } else {
+            changed = !state.key.equals(currentKey);
+            if (changed) {
+                currentKey = state.key;
+                getConfig().set("key", currentKey);
+                saveConfig();
+            }
+        }
+        nextUpdateTime = state.nextUpdateTime;
+        sync.markApplied(state);
+
+        int reverified = 0;
+        if (changed) {
+            reverified = requireReverification(null);
+            if (announce) {
+                announceRotation();
+            }
+        }
         saveKeyToWebFile();
+        if (changed) {
+            traceRotation(trace, "sync", state.epoch, reverified, nextUpdateTime);
+        }
+        governor.record(start);
+    }
+
+    private void loadHashedKey() {
+        // 配置中仍有明文密钥（首次开启或管理员手动修改），转换为哈希后删除明文
+        String plainKey = getConfig().getString("key");
+        if (plainKey != null && !plainKey.isEmpty()) {
+            storeHashedKey(plainKey);
+            currentKey = plainKey;
+            return;
+        }
+
+        String salt = getConfig().getString("key-salt");
+        String hash = getConfig().getString("key-hash");
+        if (salt == null || hash == null) {
+            getLogger().warning("已开启密钥哈希，但配置中没有密钥或哈希，请设置 key 后重载");
+            keyVerifier.setHasher(null);
+            currentKey = null;
+            return;
+        }
+
+        // 哈希未变化时保留内存中的明文（用于网页显示），否则明文已无法得知
+        KeyHasher previous = keyVerifier.getHasher();
+        if (previous == null || !previous.getHash().equals(hash)) {
+            keyVerifier.setHasher(KeyHasher.load(salt, hash, getConfig().getInt("key-iterations", hashIterations)));
+            currentKey = null;
+        }
+    }
+
+    private void storeHashedKey(String key) {
+        // 只在开启哈希时迁移明文密钥用到；每日更新和玩家验证都在校验线程上推导
+        storeHashedKey(KeyHasher.create(key, hashIterations));
+    }
+
+    private void storeHashedKey(KeyHasher hasher) {
+        getConfig().set("key", null);
+        getConfig().set("key-salt", hasher.getSalt());
+        getConfig().set("key-hash", hasher.getHash());
+        getConfig().set("key-iterations", hasher.getIterations());
+        saveConfig();
+        keyVerifier.setHasher(hasher);
+    }
+
+    private void loadCodeStore() {
+        boolean enabled = getConfig().getBoolean("one-time-codes.enabled", false);
+        this.codesExclusive = enabled && getConfig().getBoolean("one-time-codes.exclusive", false);
+
+        if (!enabled) {
+            if (codeStore != null) {
+                saveCodeStore();
+                codeStore = null;
+            }
+            return;
+        }
+        if (codeStore != null) return;
+
+        OneTimeCodeStore store = new OneTimeCodeStore(
+                getConfig().getInt("one-time-codes.code-length", 8),
+                getConfig().getInt("one-time-codes.max-codes", 500000));
+        try {
+            store.load(getCodeStoreFile());
+        } catch (IOException e) {
+            getLogger().warning("无法读取验证码文件: " + e.getMessage());
+        }
+        codeStore = store;
+    }
+
+    private File getCodeStoreFile() {
+        return new File(getDataFolder(), "codes/codes.dat");
+    }
+
+    void saveCodeStore() {
+        OneTimeCodeStore store = codeStore;
+        if (store == null) return;
+        try {
+            store.save(getCodeStoreFile());
+        } catch (IOException e) {
+            getLogger().warning("无法保存验证码文件: " + e.getMessage());
+        }
+    }
+
+    void saveCodeStoreAsync() {
+        Bukkit.getScheduler().runTaskAsynchronously(this, this::saveCodeStore);
+    }
+
+    public OneTimeCodeStore getCodeStore() {
+        return codeStore;
+    }
+
+    private String describeKey() {
+        if (!hashKey) return currentKey;
+        return currentKey == null ? "（已哈希存储）" : currentKey + "（已哈希存储）";
     }
 
     private void calculateNextUpdateTime() {
+        nextUpdateTime = computeNextUpdateTime(settings.updateHour, System.currentTimeMillis());
+    }
+
+    static long computeNextUpdateTime(int updateHour, long now) {
         Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
         calendar.set(Calendar.HOUR_OF_DAY, updateHour);
         calendar.set(Calendar.MINUTE, 0);
         calendar.set(Calendar.SECOND, 0);
         calendar.set(Calendar.MILLISECOND, 0);
 
         // 如果今天已经过了更新时间，就设置为明天
-        if (calendar.getTimeInMillis() <= System.currentTimeMillis()) {
+        if (calendar.getTimeInMillis() <= now) {
             calendar.add(Calendar.DAY_OF_MONTH, 1);
         }
 
-        nextUpdateTime = calendar.getTimeInMillis();
+        return calendar.getTimeInMillis();
     }
 
     private void startScheduledTasks() {
@@ -111,29 +882,137 @@ public class KeyAuthPlugin extends JavaPlugin implements Listener {
         new BukkitRunnable() {
             @Override
             public void run() {
+                // 负载较高时推迟到恢复后再导出
+                if (governor.deferExports()) {
+                    exportDeferred = true;
+                    return;
+                }
                 saveKeyToWebFile();
+                for (KeyRealm realm : realms.all()) {
+                    saveRealmToWebFile(realm);
+                }
             }
         }.runTaskTimer(this, 5 * 60 * 20L, 5 * 60 * 20L);
+
+        // 事件轨迹每秒交给写出线程一次
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                TraceRecorder recorder = traceRecorder;
+                if (recorder != null) {
+                    recorder.flush();
+                }
+            }
+        }.runTaskTimer(this, 20L, 20L);
+
+        // 每秒增量清理一部分过期验证码，每分钟落盘一次
+        new BukkitRunnable() {
+            private int runs;
+
+            @Override
+            public void run() {
+                OneTimeCodeStore store = codeStore;
+                if (store == null) return;
+
+                store.sweep(System.currentTimeMillis(), 65536);
+                if (++runs % 60 == 0 && store.isDirty()) {
+                    saveCodeStore();
+                }
+            }
+        }.runTaskTimerAsynchronously(this, 20L, 20L);
     }
 
     private void checkAndUpdateKey() {
-        if (!autoUpdate) return;
-
         long currentTime = System.currentTimeMillis();
+        // 各域按自己的时间独立更新
+        for (KeyRealm realm : realms.all()) {
+            if (realm.autoUpdate && currentTime >= realm.getNextUpdateTime()) {
+                rotateRealm(realm);
+            }
+        }
+
+        PluginSettings current = settings;
+        if (!current.autoUpdate) return;
+
         if (currentTime >= nextUpdateTime) {
-            updateKey();
-            calculateNextUpdateTime();
+            // 多服同步模式下由共享目录决定新密钥，结果异步送回主线程
+            if (keySync != null) {
+                keySync.requestRotation(current.updateHour, hashKey, hashIterations);
+                return;
+            }
+
+            // 哈希模式下 PBKDF2 推导在校验线程上完成，主线程只替换哈希和写回配置
+            if (hashKey) {
+                rotateHashedKey();
+                return;
+            }
+            rotateKey(generateKey(), null);
+        }
+    }
+
+    private void rotateHashedKey() {
+        if (hashRotationPending) return;
+        hashRotationPending = true;
+        String key = generateKey();
+        keyVerifier.derive(key, hashIterations, hasher -> runOnMainThread(() -> {
+            hashRotationPending = false;
+            // 校验线程繁忙时下次检查再试；推导期间关闭了哈希、开启了同步或已更新过时放弃
+            if (hasher == null || !hashKey || keySync != null || System.currentTimeMillis() < nextUpdateTime) return;
+            rotateKey(key, hasher);
+        }));
+    }
 
-            // 通知在线玩家
-            Bukkit.broadcastMessage(ChatColor.YELLOW + "⚠ 服务器密码已自动更新！");
-            Bukkit.broadcastMessage(ChatColor.GREEN + "请查看QQ群获取新密码。");
+    // hasher 为 null 时以明文保存
+    private void rotateKey(String key, KeyHasher hasher) {
+        long start = System.nanoTime();
+        KeyRotationEvent trace = new KeyRotationEvent();
+        trace.begin();
+        int reverified = updateKey(key, hasher);
+        calculateNextUpdateTime();
+        announceRotation();
+        traceRotation(trace, "local", 0, reverified, nextUpdateTime);
+        governor.record(start);
+    }
 
-            getLogger().info("密钥已自动更新为: " + currentKey);
-            getLogger().info("下次更新时间: " + new Date(nextUpdateTime));
+    // 只有该域的玩家需要重新验证，默认域和其他域的已验证玩家不受影响
+    private void rotateRealm(KeyRealm realm) {
+        long start = System.nanoTime();
+        KeyRotationEvent trace = new KeyRotationEvent();
+        trace.begin();
+        realm.setKey(generateKey());
+        realm.setNextUpdateTime(computeNextUpdateTime(realm.updateHour, System.currentTimeMillis()));
+        getConfig().set(realm.configPath("key"), realm.getKey());
+        saveConfig();
+
+        int reverified = requireReverification(realm);
+        saveRealmToWebFile(realm);
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (realms.get(player.getUniqueId()) == realm) {
+                messages.of(player).send(player, Message.KEY_ROTATED);
+            }
+        }
+
+        getLogger().info("密钥域 " + realm.name + " 的密钥已自动更新为: " + realm.getKey());
+        getLogger().info("密钥域 " + realm.name + " 下次更新时间: " + new Date(realm.getNextUpdateTime()));
+        traceRotation(trace, "realm:" + realm.name, 0, reverified, realm.getNextUpdateTime());
+        governor.record(start);
+    }
+
+    private void announceRotation() {
+        Bukkit.getPluginManager().callEvent(new KeyRotatedEvent(nextUpdateTime));
+        service.fireKeyRotated(nextUpdateTime);
+
+        // 通知默认域的在线玩家
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (realms.get(player.getUniqueId()) != null) continue;
+            messages.of(player).send(player, Message.KEY_ROTATED);
         }
+
+        getLogger().info("密钥已自动更新为: " + (hashKey ? "（已哈希存储）" : currentKey));
+        getLogger().info("下次更新时间: " + new Date(nextUpdateTime));
     }
 
-    private void updateKey() {
+    static String generateKey() {
         // 生成6位随机密码（字母+数字）
         String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
         Random random = new Random();
@@ -142,30 +1021,132 @@ public class KeyAuthPlugin extends JavaPlugin implements Listener {
         for (int i = 0; i < 6; i++) {
             newKey.append(chars.charAt(random.nextInt(chars.length())));
         }
+        return newKey.toString();
+    }
 
-        currentKey = newKey.toString();
+    // 返回需要重新验证的玩家数
+    private int updateKey(String key, KeyHasher hasher) {
+        currentKey = key;
 
         // 更新配置
-        getConfig().set("key", currentKey);
-        saveConfig();
+        if (hasher != null) {
+            storeHashedKey(hasher);
+        } else {
+            getConfig().set("key", currentKey);
+            saveConfig();
+        }
 
-        // 清除所有玩家的验证状态（除了OP）
-        authenticatedPlayers.clear();
+        int reverified = requireReverification(null);
 
-        // 通知在线非OP玩家需要重新验证
+        // 保存到网站文件
+        saveKeyToWebFile();
+        return reverified;
+    }
+
+    // realm 为 null 表示默认域
+    private int requireReverification(KeyRealm realm) {
+        // 清除该域所有玩家的验证状态（除了OP），并通知他们需要重新验证
+        realms.revoke(realm);
+        int reverified = 0;
         for (Player player : Bukkit.getOnlinePlayers()) {
-            if (!player.isOp() && authenticatedPlayers.contains(player.getUniqueId())) {
-                authenticatedPlayers.remove(player.getUniqueId());
-                player.sendMessage(ChatColor.RED + "⚠ 密码已更新，请重新验证！");
+            if (player.isOp() || trustedPlayers.contains(player.getUniqueId())) continue;
+            if (realms.get(player.getUniqueId()) != realm) continue;
+
+            if (authenticatedPlayers.remove(player.getUniqueId())) {
+                unverifiedPlayers.add(player.getUniqueId());
+                freezer.freeze(player);
+                service.firePlayerUnverified(player.getUniqueId());
+                if (proxyBridge != null && realm == null) {
+                    proxyBridge.sendRevoke(player);
+                }
+                messages.of(player).send(player, Message.REVERIFY_REQUIRED);
                 sendVerificationPrompt(player);
+                reverified++;
             }
         }
 
-        // 保存到网站文件
-        saveKeyToWebFile();
+        updateAuthGate();
+        return reverified;
+    }
+
+    private void updateAuthGate() {
+        // 只有存在未验证玩家时才监听拦截事件，全员已验证时不产生任何开销
+        boolean needed = !unverifiedPlayers.isEmpty();
+        if (needed && !authGateRegistered) {
+            getServer().getPluginManager().registerEvents(authGate, this);
+            authGateRegistered = true;
+        } else if (!needed && authGateRegistered) {
+            HandlerList.unregisterAll(authGate);
+            authGateRegistered = false;
+        }
+    }
+
+    void onGovernorRecovered() {
+        if (exportDeferred) {
+            exportDeferred = false;
+            saveKeyToWebFile();
+            for (KeyRealm realm : realms.all()) {
+                saveRealmToWebFile(realm);
+            }
+        }
     }
 
     private void saveKeyToWebFile() {
+        // 多服同步模式下只由写入当前纪元的节点导出，避免各节点互相覆盖
+        KeySync sync = keySync;
+        if (sync != null && !sync.isLeader()) return;
+        long epoch = sync != null ? sync.getAppliedEpoch() : 0;
+
+        String key = currentKey;
+        long nextUpdate = nextUpdateTime;
+        boolean hashed = hashKey;
+        String path = settings.webPath;
+
+        // 密钥变化必须导出，负载较高时改为异步写出，不占用 tick
+        if (governor.deferExports()) {
+            Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+                // 排队期间已采用更新的纪元时放弃这次写出
+                if (sync != null && sync.getAppliedEpoch() != epoch) return;
+                writeWebFiles(path, key, nextUpdate, hashed);
+            });
+            return;
+        }
+
+        long start = System.nanoTime();
+        writeWebFiles(path, key, nextUpdate, hashed);
+        governor.record(start);
+    }
+
+    // 域的密钥只保存在本服，不经过多服同步
+    private void saveRealmToWebFile(KeyRealm realm) {
+        String key = realm.getKey();
+        long nextUpdate = realm.getNextUpdateTime();
+        String path = realm.webPath;
+
+        if (governor.deferExports()) {
+            Bukkit.getScheduler().runTaskAsynchronously(this, () -> writeWebFiles(path, key, nextUpdate, false));
+            return;
+        }
+
+        long start = System.nanoTime();
+        writeWebFiles(path, key, nextUpdate, false);
+        governor.record(start);
+    }
+
+    private void writeWebFiles(String webPath, String currentKey, long nextUpdateTime, boolean hashKey) {
+        // 哈希模式下重启后无法得知明文：保留上次导出的文件，不用空密钥覆盖
+        if (currentKey == null) {
+            if (!unpublishedLogged) {
+                unpublishedLogged = true;
+                getLogger().info("当前密钥的明文未知（哈希模式重启后），保留已有的网页文件，下次更新密钥后再导出");
+            }
+            return;
+        }
+        unpublishedLogged = false;
+
+        WebExportEvent trace = new WebExportEvent();
+        trace.begin();
+        boolean success = false;
         try {
             File webDir = new File(webPath).getParentFile();
             if (!webDir.exists()) {
@@ -175,28 +1156,38 @@ public class KeyAuthPlugin extends JavaPlugin implements Listener {
             // 创建包含密钥和更新时间的JSON文件
             String jsonContent = String.format(
                     "{\"key\": \"%s\", \"nextUpdate\": %d, \"updateTime\": \"%s\"}",
-                    currentKey, nextUpdateTime, new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(nextUpdateTime))
+                    currentKey, nextUpdateTime, WEB_TIME.format(Instant.ofEpochMilli(nextUpdateTime))
             );
 
             try (FileWriter writer = new FileWriter(webPath)) {
                 writer.write(jsonContent);
             }
 
-            // 同时创建一个简单的文本文件只包含密钥（用于兼容性）
+            // 同时创建一个简单的文本文件只包含密钥（用于兼容性，key.html 读取的就是它）
+            // 网页导出的用途就是向玩家公开密钥，哈希模式只保护 config.yml，三个文件同样写出明文
             String txtPath = webPath.replace(".txt", "_simple.txt");
             try (FileWriter writer = new FileWriter(txtPath)) {
                 writer.write(currentKey);
             }
 
             // 生成网页文件
-            generateWebPage();
+            generateWebPage(webPath);
+            success = true;
 
         } catch (IOException e) {
             getLogger().warning("无法保存密钥到网站文件: " + e.getMessage());
         }
+
+        trace.end();
+        if (trace.shouldCommit()) {
+            trace.path = webPath;
+            trace.hashed = hashKey;
+            trace.success = success;
+            trace.commit();
+        }
     }
 
-    private void generateWebPage() {
+    private void generateWebPage(String webPath) {
         try {
             String htmlPath = new File(webPath).getParent() + "/key.html";
             try (FileWriter writer = new FileWriter(htmlPath)) {
@@ -753,123 +1744,342 @@ public class KeyAuthPlugin extends JavaPlugin implements Listener {
 
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
+        long start = System.nanoTime();
+        JoinPromptEvent trace = new JoinPromptEvent();
+        trace.begin();
         Player player = event.getPlayer();
 
-        // 记录玩家加入时间
+        // 记录玩家加入时间，并确定一次该玩家使用的语言
         joinTimeMap.put(player.getUniqueId(), System.currentTimeMillis());
+        messages.bind(player);
+        // 所属的域只在加入时确定一次，之后各事件按 UUID 查缓存
+        KeyRealm realm = realms.isEmpty() ? null : realms.resolve(player, realmWorld(player));
 
-        // 发送验证提示
-        sendVerificationPrompt(player);
+        // OP 直接视为已验证，供接口无锁查询
+        if (player.isOp()) {
+            authenticatedPlayers.add(player.getUniqueId());
+        } else if (trustedNetworks.isTrusted(player)) {
+            // 受信任网络只在连接时查询一次，之后不再提示和踢出
+            authenticatedPlayers.add(player.getUniqueId());
+            trustedPlayers.add(player.getUniqueId());
+            Bukkit.getPluginManager().callEvent(new PlayerKeyVerifiedEvent(player, 0));
+            service.firePlayerVerified(player.getUniqueId(), player.getName(), 0);
+            messages.of(player).send(player, Message.TRUSTED_NETWORK);
+            traceJoin(trace, player, "trusted");
+            governor.record(start);
+            return;
+        } else {
+            unverifiedPlayers.add(player.getUniqueId());
+            freezer.freeze(player);
+            updateAuthGate();
+        }
+
+        // 发送验证提示；群组服模式下先等待代理的验证消息，避免已验证玩家看到提示
+        boolean awaitProxy = proxyBridge != null && proxyGraceTicks > 0 && !player.isOp() && realm == null;
+        if (awaitProxy) {
+            new BukkitRunnable() {
+                @Override
+                public void run() {
+                    if (player.isOnline() && unverifiedPlayers.contains(player.getUniqueId())) {
+                        sendVerificationPrompt(player);
+                    }
+                }
+            }.runTaskLater(this, proxyGraceTicks);
+        } else {
+            sendVerificationPrompt(player);
+        }
 
         // 延迟踢出未验证玩家
+        scheduleKick(player);
+        traceJoin(trace, player, player.isOp() ? "op" : awaitProxy ? "proxy-wait" : "prompt");
+        governor.record(start);
+    }
+
+    private static void traceJoin(JoinPromptEvent trace, Player player, String outcome) {
+        trace.end();
+        if (trace.shouldCommit()) {
+            trace.player = player.getName();
+            trace.outcome = outcome;
+            trace.commit();
+        }
+    }
+
+    private void scheduleKick(Player player) {
         new BukkitRunnable() {
             @Override
             public void run() {
                 if (player.isOnline() && !isAuthenticated(player)) {
-                    player.kickPlayer(ChatColor.RED + "验证超时！\n请获取正确密码后重新进入服务器。\n密码请在QQ群中获取。");
+                    player.kickPlayer(messages.of(player).format(Message.KICK_TIMEOUT));
                 }
             }
-        }.runTaskLater(this, kickDelay * 20L);
+        }.runTaskLater(this, kickDelay(player) * 20L);
+    }
+
+    private int kickDelay(Player player) {
+        KeyRealm realm = realms.get(player.getUniqueId());
+        return realm != null ? realm.kickDelay : settings.kickDelay;
     }
 
     private void sendVerificationPrompt(Player player) {
-        player.sendMessage(" ");
-        player.sendMessage(ChatColor.GRAY + "系统 >> " + ChatColor.BLUE + "欢迎你!");
-        player.sendMessage(ChatColor.GRAY + "系统 >> " + ChatColor.BLUE + "请使用 " + ChatColor.WHITE + "/key <密码>" + ChatColor.BLUE + " 进行验证");
-        player.sendMessage(" ");
-        player.sendMessage(ChatColor.GRAY + "系统 >> " + ChatColor.BLUE + "你有 " + ChatColor.RED + kickDelay + ChatColor.BLUE + " 秒时间输入密码");
-        player.sendMessage(" ");
-
-        // 发送标题提示
-        player.sendTitle(
-                ChatColor.BLUE + "⚠ 你当前需要验证才可移动",
-                ChatColor.WHITE + "使用 /key <密码> 进行验证",
-                10, 60, 10
-        );
+        MessageBundle bundle = messages.of(player);
+        PluginSettings current = settings;
+        bundle.send(player, Message.PROMPT, kickDelay(player));
+
+        // 发送标题提示（负载较高时省略）
+        if (governor.allowTitles()) {
+            PluginSettings.Title title = current.promptTitle;
+            player.sendTitle(
+                    bundle.format(Message.PROMPT_TITLE),
+                    bundle.format(Message.PROMPT_SUBTITLE),
+                    title.fadeIn, title.stay, title.fadeOut
+            );
+        }
     }
 
     @EventHandler
-    public void onPlayerMove(PlayerMoveEvent event) {
+    public void onPlayerSpawnLocation(PlayerSpawnLocationEvent event) {
+        LimboWorld current = limbo;
+        if (current == null) return;
+
+        // 加入时就会通过验证的玩家不进入等待世界
         Player player = event.getPlayer();
+        boolean verifiedOnJoin = player.isOp() || trustedNetworks.isTrusted(player);
+        event.setSpawnLocation(current.onSpawn(player, event.getSpawnLocation(), verifiedOnJoin));
+    }
 
-        // 如果玩家未验证，阻止移动
-        if (!isAuthenticated(player) && !player.isOp()) {
-            // 检查是否真的移动了位置
-            if (event.getFrom().getBlockX() != event.getTo().getBlockX() ||
-                    event.getFrom().getBlockY() != event.getTo().getBlockY() ||
-                    event.getFrom().getBlockZ() != event.getTo().getBlockZ()) {
-                event.setTo(event.getFrom());
-                player.sendMessage(ChatColor.GRAY + "系统 >> " + ChatColor.BLUE + "请先使用 " + ChatColor.WHITE + "/key <密码>" + ChatColor.BLUE + " 进行验证!");
-            }
-        }
+    @EventHandler
+    public void onPlayerLocaleChange(PlayerLocaleChangeEvent event) {
+        // 客户端在加入后才发送语言设置，此时更新一次
+        messages.bind(event.getPlayer(), event.getLocale());
     }
 
     @EventHandler
-    public void onPlayerCommand(PlayerCommandPreprocessEvent event) {
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        if (realms.isEmpty()) return;
+        long start = System.nanoTime();
         Player player = event.getPlayer();
-        String message = event.getMessage().toLowerCase();
-
-        // 允许验证命令和退出命令
-        if (message.startsWith("/key ") || message.equals("/key") ||
-                message.startsWith("/quit") || message.equals("/quit") ||
-                message.startsWith("/exit") || message.equals("/exit") ||
-                message.startsWith("/keystats") || message.equals("/keystats") ||
-                message.startsWith("/keyinfo") || message.equals("/keyinfo")) {
-            return;
+        KeyRealm before = realms.get(player.getUniqueId());
+        KeyRealm after = realms.changeWorld(player.getUniqueId(), player.getWorld().getName());
+        if (before != after) {
+            enterRealm(player, after);
         }
+        governor.record(start);
+    }
 
-        // 阻止未验证玩家使用其他命令
-        if (!isAuthenticated(player) && !player.isOp()) {
-            event.setCancelled(true);
-            player.sendMessage(ChatColor.GRAY + "系统 >> " + ChatColor.BLUE + "请先使用 " + ChatColor.WHITE + "/key <密码>" + ChatColor.BLUE + " 进行验证!");
-        }
+    // 玩家进入使用另一把密钥的域：本次登录未验证过该域时需要重新输入密钥
+    private void enterRealm(Player player, KeyRealm realm) {
+        UUID playerId = player.getUniqueId();
+        if (player.isOp() || trustedPlayers.contains(playerId)) return;
+        if (realms.hasVerified(playerId, realm)) return;
+        if (!authenticatedPlayers.remove(playerId)) return;
+
+        unverifiedPlayers.add(playerId);
+        joinTimeMap.put(playerId, System.currentTimeMillis());
+        freezer.freeze(player);
+        service.firePlayerUnverified(playerId);
+        MessageBundle bundle = messages.of(player);
+        bundle.send(player, Message.REALM_CHANGED, realm != null ? realm.name : bundle.format(Message.REALM_DEFAULT));
+        sendVerificationPrompt(player);
+        scheduleKick(player);
+        updateAuthGate();
     }
 
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
+        long start = System.nanoTime();
         UUID playerId = event.getPlayer().getUniqueId();
+        // 先恢复移动速度，玩家数据随后才会保存
+        freezer.unfreeze(event.getPlayer());
         // 玩家退出时移除验证状态和加入时间
         authenticatedPlayers.remove(playerId);
         joinTimeMap.remove(playerId);
+        verifyingPlayers.remove(playerId);
+        trustedPlayers.remove(playerId);
+        messages.unbind(playerId);
+        realms.forget(playerId);
+        governor.forget(playerId);
+        if (unverifiedPlayers.remove(playerId)) {
+            updateAuthGate();
+        }
+        governor.record(start);
     }
 
     public boolean authenticatePlayer(Player player, String inputKey) {
-        if (inputKey.equals(currentKey)) {
+        // 持续时间覆盖异步推导，结果回到主线程时才提交
+        VerifyAttemptEvent attempt = new VerifyAttemptEvent();
+        attempt.begin();
+
+        // 其他域只比较各自的明文密钥，一次性验证码和哈希存储只属于默认域
+        KeyRealm realm = realms.get(player.getUniqueId());
+        if (realm != null) {
+            boolean matched = KeyHasher.constantTimeEquals(inputKey, realm.getKey());
+            return traceAttempt(attempt, player, matched ? "match" : "mismatch", completeAuthentication(player, matched));
+        }
+
+        // 一次性验证码：O(1) 核销，不需要经过哈希校验
+        OneTimeCodeStore store = codeStore;
+        if (store != null && store.redeem(inputKey)) {
+            return traceAttempt(attempt, player, "code", completeAuthentication(player, true));
+        }
+        if (codesExclusive) {
+            return traceAttempt(attempt, player, "mismatch", completeAuthentication(player, false));
+        }
+
+        if (!hashKey) {
+            boolean matched = KeyHasher.constantTimeEquals(inputKey, currentKey);
+            return traceAttempt(attempt, player, matched ? "match" : "mismatch", completeAuthentication(player, matched));
+        }
+
+        // 哈希模式：在校验线程中推导，结果回到主线程处理
+        UUID playerId = player.getUniqueId();
+        if (!verifyingPlayers.add(playerId)) {
+            messages.of(player).send(player, Message.VERIFYING);
+            return traceAttempt(attempt, player, "pending", false);
+        }
+
+        verifyHashed(player, inputKey, attempt, STALE_RETRIES);
+        return false;
+    }
+
+    // 推导期间哈希被替换（密钥更新，或重载时改了迭代次数而密钥不变）时，旧哈希的结论不再可靠，
+    // 用当前的哈希重新校验；连续被替换超过 retries 次时请玩家稍后重试
+    private void verifyHashed(Player player, String inputKey, VerifyAttemptEvent attempt, int retries) {
+        UUID playerId = player.getUniqueId();
+        KeyHasher submitted = keyVerifier.getHasher();
+        keyVerifier.verify(inputKey, result -> runOnMainThread(() -> {
+            verifyingPlayers.remove(playerId);
+            if (!player.isOnline() || isAuthenticated(player)) {
+                traceAttempt(attempt, player, "offline", false);
+                return;
+            }
+
+            if (result == KeyVerifier.Result.BUSY) {
+                messages.of(player).send(player, Message.VERIFIER_BUSY);
+                traceAttempt(attempt, player, "busy", false);
+            } else if (keyVerifier.getHasher() != submitted) {
+                if (retries > 0 && verifyingPlayers.add(playerId)) {
+                    verifyHashed(player, inputKey, attempt, retries - 1);
+                    return;
+                }
+                messages.of(player).send(player, Message.VERIFIER_BUSY);
+                traceAttempt(attempt, player, "stale", false);
+            } else {
+                boolean matched = result == KeyVerifier.Result.MATCH;
+                completeAuthentication(player, matched);
+                traceAttempt(attempt, player, matched ? "match" : "mismatch", matched);
+            }
+        }));
+    }
+
+    private boolean traceAttempt(VerifyAttemptEvent attempt, Player player, String outcome, boolean result) {
+        TraceRecorder recorder = traceRecorder;
+        if (recorder != null) {
+            recorder.recordAttempt(player, outcome);
+        }
+        attempt.end();
+        if (attempt.shouldCommit()) {
+            long now = System.currentTimeMillis();
+            attempt.player = player.getName();
+            attempt.outcome = outcome;
+            attempt.hashed = hashKey && realms.get(player.getUniqueId()) == null;
+            attempt.sinceJoin = now - joinTimeMap.getOrDefault(player.getUniqueId(), now);
+            attempt.commit();
+        }
+        return result;
+    }
+
+    private void runOnMainThread(Runnable task) {
+        if (Bukkit.isPrimaryThread()) {
+            task.run();
+        } else if (isEnabled()) {
+            Bukkit.getScheduler().runTask(this, task);
+        }
+    }
+
+    private boolean completeAuthentication(Player player, boolean matched) {
+        long start = System.nanoTime();
+        try {
+            return applyAuthentication(player, matched);
+        } finally {
+            governor.record(start);
+        }
+    }
+
+    private boolean applyAuthentication(Player player, boolean matched) {
+        if (matched) {
             long joinTime = joinTimeMap.getOrDefault(player.getUniqueId(), System.currentTimeMillis());
             long verificationTime = System.currentTimeMillis() - joinTime;
             double seconds = verificationTime / 1000.0;
 
-            // 记录验证时间
-            verificationTimes.add(verificationTime);
+            // 记录验证时间，各域分别统计
+            KeyRealm realm = realms.get(player.getUniqueId());
+            VerificationLog log = realm != null ? realm.getLog() : verificationLog;
+            log.add(System.currentTimeMillis(), verificationTime);
 
-            // 计算超越百分比
-            double percentile = calculatePercentile(verificationTime);
+            // 计算超越百分比（需要遍历全部记录，负载较高时跳过）
+            boolean showTitle = governor.allowTitles();
+            double percentile = showTitle && governor.allowPercentile() ? calculatePercentile(log, verificationTime) : 0;
 
             authenticatedPlayers.add(player.getUniqueId());
+            realms.markVerified(player.getUniqueId(), realm);
+            unverifiedPlayers.remove(player.getUniqueId());
+            freezer.unfreeze(player);
+            releaseFromLimbo(player);
+            updateAuthGate();
+            Bukkit.getPluginManager().callEvent(new PlayerKeyVerifiedEvent(player, verificationTime));
+            service.firePlayerVerified(player.getUniqueId(), player.getName(), verificationTime);
+            // 代理上的验证只代表默认域
+            if (proxyBridge != null && realm == null) {
+                proxyBridge.sendVerified(player);
+            }
 
             // 发送成功标题
-            sendSuccessTitle(player, seconds, percentile);
+            if (showTitle) {
+                sendSuccessTitle(player, seconds, percentile);
+            }
 
-            player.sendMessage(ChatColor.GRAY + "系统 >> " + ChatColor.BLUE + "✅ 验证成功！欢迎来到服务器!");
-            player.sendMessage(ChatColor.GRAY + "系统 >> " +ChatColor.BLUE + "现在你可以正常游戏了");
+            messages.of(player).send(player, Message.VERIFY_SUCCESS);
 
             return true;
         } else {
-            player.sendMessage(ChatColor.GRAY + "系统 >> " + ChatColor.RED + "❌ 密码错误!");
-            player.sendMessage(ChatColor.GRAY + "系统 >> " + ChatColor.BLUE + "请检查密码是否正确");
+            messages.of(player).send(player, Message.VERIFY_FAILED);
             return false;
         }
     }
 
+    // 代理已确认该玩家在其他子服验证过，本服不再要求输入密钥
+    void applyProxyVerification(Player player) {
+        long start = System.nanoTime();
+        // 其他域的玩家仍需输入该域的密钥
+        if (realms.get(player.getUniqueId()) == null && unverifiedPlayers.remove(player.getUniqueId())) {
+            authenticatedPlayers.add(player.getUniqueId());
+            realms.markVerified(player.getUniqueId(), null);
+            freezer.unfreeze(player);
+            releaseFromLimbo(player);
+            updateAuthGate();
+            Bukkit.getPluginManager().callEvent(new PlayerKeyVerifiedEvent(player, 0));
+            service.firePlayerVerified(player.getUniqueId(), player.getName(), 0);
+            messages.of(player).send(player, Message.PROXY_VERIFIED);
+        }
+        governor.record(start);
+    }
+
+    private void releaseFromLimbo(Player player) {
+        if (limbo != null) {
+            limbo.release(player);
+        }
+    }
+
     private void sendSuccessTitle(Player player, double seconds, double percentile) {
-        String timeString = String.format("%.2f", seconds);
-        String percentileString = String.format("%.1f", percentile);
+        MessageBundle bundle = messages.of(player);
+        PluginSettings.Title success = settings.successTitle;
+        PluginSettings.Title welcome = settings.welcomeTitle;
 
         // 主标题
         player.sendTitle(
-                ChatColor.BLUE + "✅ 验证成功！",
-                ChatColor.WHITE + "输入时间 " + timeString + " 秒 | 你当前超越了 " + percentileString + "% 玩家",
-                10, 70, 20
+                bundle.format(Message.SUCCESS_TITLE),
+                bundle.format(Message.SUCCESS_SUBTITLE, MessageBundle.decimal(seconds, 2), MessageBundle.decimal(percentile, 1)),
+                success.fadeIn, success.stay, success.fadeOut
         );
 
         // 3秒后显示欢迎信息
@@ -878,30 +2088,23 @@ public class KeyAuthPlugin extends JavaPlugin implements Listener {
             public void run() {
                 if (player.isOnline()) {
                     player.sendTitle(
-                            ChatColor.BLUE + "欢迎，" + player.getName() + "!",
-                            ChatColor.WHITE + "Enjoy This Game ♡ ",
-                            10, 40, 10
+                            bundle.format(Message.WELCOME_TITLE, player.getName()),
+                            bundle.format(Message.WELCOME_SUBTITLE),
+                            welcome.fadeIn, welcome.stay, welcome.fadeOut
                     );
                 }
             }
         }.runTaskLater(this, 60L); // 3秒后执行 (60 ticks = 3 seconds)
     }
 
-    private double calculatePercentile(long verificationTime) {
-        if (verificationTimes.size() <= 1) {
+    private double calculatePercentile(VerificationLog log, long verificationTime) {
+        VerificationLog.Snapshot snapshot = log.snapshot();
+        if (snapshot.size() <= 1) {
             return 100.0; // 第一个玩家，超越100%
         }
 
-        int fasterCount = 0;
-        synchronized (verificationTimes) {
-            for (Long time : verificationTimes) {
-                if (time < verificationTime) {
-                    fasterCount++;
-                }
-            }
-        }
-
-        double percentile = (1.0 - (double) fasterCount / verificationTimes.size()) * 100;
+        int fasterCount = snapshot.countFasterThan(verificationTime);
+        double percentile = (1.0 - (double) fasterCount / snapshot.size()) * 100;
         return Math.max(0, Math.min(100, percentile)); // 确保在0-100范围内
     }
 
@@ -917,16 +2120,87 @@ public class KeyAuthPlugin extends JavaPlugin implements Listener {
         return nextUpdateTime;
     }
 
+    // 返回 null 表示默认域
+    KeyRealm getRealm(Player player) {
+        return realms.get(player.getUniqueId());
+    }
+
+    RealmRegistry getRealms() {
+        return realms;
+    }
+
+    MessageCatalog getMessages() {
+        return messages;
+    }
+
+    KeySync getKeySync() {
+        return keySync;
+    }
+
+    public TickGovernor getGovernor() {
+        return governor;
+    }
+
     public int getUpdateHour() {
-        return updateHour;
+        return settings.updateHour;
     }
 
+    PluginSettings getSettings() {
+        return settings;
+    }
+
+    boolean isHashKey() {
+        return hashKey;
+    }
+
+    int getHashIterations() {
+        return hashIterations;
+    }
+
+    // 会复制全部记录，数据量大时请使用 exportStatistics
     public List<Long> getVerificationTimes() {
-        return new ArrayList<>(verificationTimes);
+        VerificationLog.Snapshot snapshot = verificationLog.snapshot();
+        List<Long> times = new ArrayList<>(snapshot.size());
+        try {
+            snapshot.forEach((verifiedAt, duration) -> times.add((long) duration));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return times;
+    }
+
+    VerificationLog getVerificationLog() {
+        return verificationLog;
+    }
+
+    public int getVerificationCount() {
+        return verificationLog.size();
     }
 
+    public CompletableFuture<Integer> exportStatistics(Path target, StatsFormat format) {
+        return exportStatistics(verificationLog, target, format);
+    }
+
+    // 在调用线程截取快照，之后的记录不计入；写文件在后台线程进行
+    CompletableFuture<Integer> exportStatistics(VerificationLog log, Path target, StatsFormat format) {
+        VerificationLog.Snapshot snapshot = log.snapshot();
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+            try {
+                result.complete(StatsExporter.export(snapshot, target, format));
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    // 换成新的空存储，正在导出的快照不受影响
     public void clearStatistics() {
-        verificationTimes.clear();
+        verificationLog = new VerificationLog();
+        for (KeyRealm realm : realms.all()) {
+            realm.clearLog();
+        }
     }
 
 }
@@ -0,0 +1,124 @@
+package com.keyauth;
+
+import com.keyauth.api.KeyAuthAPI;
+import com.keyauth.api.KeyAuthListener;
+import com.keyauth.api.StatsFormat;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+public class KeyAuthService implements KeyAuthAPI, Listener {
+
+    private final KeyAuthPlugin plugin;
+    private final Set<UUID> authenticatedPlayers;
+    private final List<Registration> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService eventExecutor;
+
+    public KeyAuthService(KeyAuthPlugin plugin, Set<UUID> authenticatedPlayers) {
+        this.plugin = plugin;
+        this.authenticatedPlayers = authenticatedPlayers;
+        // 单线程保证同一监听器收到的事件顺序与发生顺序一致
+        this.eventExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "KeyAuth-EventBus");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public boolean isVerified(UUID playerId) {
+        return authenticatedPlayers.contains(playerId);
+    }
+
+    @Override
+    public long getNextUpdateTime() {
+        return plugin.getNextUpdateTime();
+    }
+
+    @Override
+    public void registerAsyncListener(Plugin owner, KeyAuthListener listener) {
+        listeners.add(new Registration(owner, listener));
+    }
+
+    @Override
+    public void unregisterAsyncListener(KeyAuthListener listener) {
+        listeners.removeIf(registration -> registration.listener == listener);
+    }
+
+    @Override
+    public void unregisterAsyncListeners(Plugin owner) {
+        listeners.removeIf(registration -> registration.owner == owner);
+    }
+
+    // 其他插件被禁用（含重载）时移除它们的监听器，避免继续回调已卸载的类
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(PluginDisableEvent event) {
+        unregisterAsyncListeners(event.getPlugin());
+    }
+
+    @Override
+    public CompletableFuture<Integer> exportVerificationStats(Path target, StatsFormat format) {
+        return plugin.exportStatistics(target, format);
+    }
+
+    void firePlayerVerified(UUID playerId, String playerName, long verificationTime) {
+        dispatch(listener -> listener.onPlayerVerified(playerId, playerName, verificationTime));
+    }
+
+    void firePlayerUnverified(UUID playerId) {
+        dispatch(listener -> listener.onPlayerUnverified(playerId));
+    }
+
+    void fireKeyRotated(long nextUpdateTime) {
+        dispatch(listener -> listener.onKeyRotated(nextUpdateTime));
+    }
+
+    private void dispatch(Consumer<KeyAuthListener> action) {
+        // 没有监听器时不提交任务，避免无谓的开销
+        if (listeners.isEmpty()) return;
+
+        eventExecutor.execute(() -> {
+            for (Registration registration : listeners) {
+                try {
+                    action.accept(registration.listener);
+                } catch (Throwable t) {
+                    plugin.getLogger().log(Level.WARNING, "插件 " + registration.owner.getName() + " 的监听器出错", t);
+                }
+            }
+        });
+    }
+
+    void shutdown() {
+        listeners.clear();
+        eventExecutor.shutdown();
+        try {
+            eventExecutor.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Registration {
+        private final Plugin owner;
+        private final KeyAuthListener listener;
+
+        private Registration(Plugin owner, KeyAuthListener listener) {
+            this.owner = owner;
+            this.listener = listener;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.keyauth;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class KeyCodesCommand implements CommandExecutor {
+
+    // 分批生成，避免长时间占用验证码索引的锁
+    private static final int BATCH_SIZE = 10000;
+    // 有效期上限：十年
+    private static final int MAX_HOURS = 24 * 365 * 10;
+
+    private final KeyAuthPlugin plugin;
+
+    public KeyCodesCommand(KeyAuthPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        MessageBundle messages = plugin.getMessages().of(sender);
+        if (!sender.hasPermission("keyauth.codes")) {
+            messages.send(sender, Message.NO_PERMISSION);
+            return true;
+        }
+
+        OneTimeCodeStore store = plugin.getCodeStore();
+        if (store == null) {
+            messages.send(sender, Message.CODES_DISABLED);
+            return true;
+        }
+
+        if (args.length == 0 || args[0].equalsIgnoreCase("count")) {
+            messages.send(sender, Message.CODES_COUNT, store.size(), store.getMaxCodes());
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("clear")) {
+            store.clear();
+            plugin.saveCodeStoreAsync();
+            messages.send(sender, Message.CODES_CLEARED);
+            return true;
+        }
+
+        if (!args[0].equalsIgnoreCase("generate") || args.length < 2) {
+            messages.send(sender, Message.CODES_USAGE);
+            return true;
+        }
+
+        int count;
+        int hours;
+        try {
+            count = Integer.parseInt(args[1]);
+            hours = args.length > 2 ? Integer.parseInt(args[2]) : plugin.getConfig().getInt("one-time-codes.default-ttl-hours", 72);
+        } catch (NumberFormatException e) {
+            messages.send(sender, Message.CODES_NOT_NUMBER);
+            return true;
+        }
+        if (count <= 0 || hours <= 0) {
+            messages.send(sender, Message.CODES_NOT_POSITIVE);
+            return true;
+        }
+        if (hours > MAX_HOURS) {
+            messages.send(sender, Message.CODES_TTL_TOO_LONG, MAX_HOURS);
+            return true;
+        }
+
+        messages.send(sender, Message.CODES_GENERATING, count);
+        long expireAt = System.currentTimeMillis() + hours * 60L * 60L * 1000L;
+
+        // 生成和写文件都在异步线程完成
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            File output = new File(plugin.getDataFolder(), "codes/codes-" + LocalDateTime.now().format(KeyAuthPlugin.FILE_TIMESTAMP) + ".txt");
+            int generated = 0;
+
+            try {
+                output.getParentFile().mkdirs();
+                try (BufferedWriter writer = Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8)) {
+                    while (generated < count) {
+                        List<String> batch = store.generate(Math.min(BATCH_SIZE, count - generated), expireAt);
+                        if (batch.isEmpty()) break; // 已达到容量上限
+
+                        for (String code : batch) {
+                            writer.write(code);
+                            writer.newLine();
+                        }
+                        generated += batch.size();
+                    }
+                }
+                plugin.saveCodeStore();
+            } catch (IOException e) {
+                plugin.getLogger().warning("无法保存验证码文件: " + e.getMessage());
+            }
+
+            int result = generated;
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                messages.send(sender, Message.CODES_GENERATED, result, hours);
+                messages.send(sender, Message.CODES_SAVED, output.getPath());
+                if (result < count) {
+                    messages.send(sender, Message.CODES_LIMIT_REACHED, store.getMaxCodes());
+                }
+            });
+        });
+
+        return true;
+    }
+}
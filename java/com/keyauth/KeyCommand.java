@@ -1,6 +1,5 @@
 package com.keyauth;
 
-import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -16,8 +15,9 @@ public class KeyCommand implements CommandExecutor {
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        MessageBundle messages = plugin.getMessages().of(sender);
         if (!(sender instanceof Player)) {
-            sender.sendMessage(ChatColor.RED + "只有玩家可以使用这个命令！");
+            messages.send(sender, Message.PLAYER_ONLY);
             return true;
         }
 
@@ -25,13 +25,13 @@ public class KeyCommand implements CommandExecutor {
 
         // 检查玩家是否已经验证
         if (plugin.isAuthenticated(player)) {
-            player.sendMessage(ChatColor.WHITE + "你已经通过验证了！");
+            messages.send(player, Message.ALREADY_VERIFIED);
             return true;
         }
 
         // 检查参数
         if (args.length != 1) {
-            player.sendMessage(ChatColor.BLUE + "使用方法: /key <密码>");
+            messages.send(player, Message.KEY_USAGE);
             return true;
         }
 
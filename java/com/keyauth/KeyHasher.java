@@ -0,0 +1,73 @@
+package com.keyauth;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// 加盐 PBKDF2 密钥哈希，配置文件中只保存 salt 和 hash
+public final class KeyHasher {
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final byte[] salt;
+    private final byte[] hash;
+    private final int iterations;
+
+    private KeyHasher(byte[] salt, byte[] hash, int iterations) {
+        this.salt = salt;
+        this.hash = hash;
+        this.iterations = iterations;
+    }
+
+    public static KeyHasher create(String key, int iterations) {
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        return new KeyHasher(salt, derive(key, salt, iterations), iterations);
+    }
+
+    public static KeyHasher load(String saltBase64, String hashBase64, int iterations) {
+        Base64.Decoder decoder = Base64.getDecoder();
+        return new KeyHasher(decoder.decode(saltBase64), decoder.decode(hashBase64), iterations);
+    }
+
+    // 耗时操作，不要在主线程调用
+    public boolean matches(String input) {
+        return MessageDigest.isEqual(hash, derive(input, salt, iterations));
+    }
+
+    public String getSalt() {
+        return Base64.getEncoder().encodeToString(salt);
+    }
+
+    public String getHash() {
+        return Base64.getEncoder().encodeToString(hash);
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    // 明文比较同样使用常量时间，避免通过响应时间猜测密钥
+    public static boolean constantTimeEquals(String input, String key) {
+        if (input == null || key == null) return false;
+        return MessageDigest.isEqual(input.getBytes(StandardCharsets.UTF_8), key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] derive(String input, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(input.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("无法计算密钥哈希", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.keyauth;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.List;
+
+// 按权限组或世界划分的密钥域：有自己的密钥、更新时间、网页导出路径和验证统计
+// 默认域仍是 config.yml 顶层的 key，不在这里表示；域的密钥只以明文保存，不参与多服同步
+final class KeyRealm {
+
+    final String name;
+    // 为 null 时只按世界匹配
+    final String permission;
+    final List<String> worlds;
+    final int kickDelay;
+    final boolean autoUpdate;
+    final int updateHour;
+    final String webPath;
+
+    private volatile String key;
+    private volatile long nextUpdateTime;
+    private volatile VerificationLog log;
+
+    private KeyRealm(String name, ConfigurationSection config, int defaultKickDelay) {
+        this.name = name;
+        String permission = config.getString("permission", "");
+        this.permission = permission == null || permission.isEmpty() ? null : permission;
+        this.worlds = config.getStringList("worlds");
+        this.kickDelay = config.getInt("kick-delay", defaultKickDelay);
+        this.autoUpdate = config.getBoolean("auto-update.enabled", true);
+        this.updateHour = config.getInt("auto-update.update-hour", 12);
+        this.webPath = config.getString("auto-update.web-path", "plugins/KeyAuth/web/" + name + "/key.txt");
+        this.key = config.getString("key", "");
+    }
+
+    // 重载时沿用同名域的统计；更新时刻不变时也沿用下次更新时间
+    static KeyRealm from(String name, ConfigurationSection config, int defaultKickDelay, KeyRealm previous, long now) {
+        KeyRealm realm = new KeyRealm(name, config, defaultKickDelay);
+        realm.log = previous != null ? previous.log : new VerificationLog();
+        realm.nextUpdateTime = previous != null && previous.updateHour == realm.updateHour
+                ? previous.nextUpdateTime
+                : KeyAuthPlugin.computeNextUpdateTime(realm.updateHour, now);
+        return realm;
+    }
+
+    String configPath(String path) {
+        return "realms." + name + "." + path;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    boolean hasKey() {
+        String current = key;
+        return current != null && !current.isEmpty();
+    }
+
+    // 只在主线程调用
+    void setKey(String key) {
+        this.key = key;
+    }
+
+    long getNextUpdateTime() {
+        return nextUpdateTime;
+    }
+
+    void setNextUpdateTime(long nextUpdateTime) {
+        this.nextUpdateTime = nextUpdateTime;
+    }
+
+    VerificationLog getLog() {
+        return log;
+    }
+
+    void clearLog() {
+        log = new VerificationLog();
+    }
+
+    // 启动时换成恢复的统计
+    void replaceLog(VerificationLog log) {
+        this.log = log;
+    }
+}
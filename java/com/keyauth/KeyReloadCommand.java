@@ -1,6 +1,5 @@
 package com.keyauth;
 
-import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -15,14 +14,22 @@ public class KeyReloadCommand implements CommandExecutor {
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        MessageBundle messages = plugin.getMessages().of(sender);
         if (!sender.hasPermission("keyauth.reload")) {
-            sender.sendMessage(ChatColor.RED + "你没有权限使用这个命令！");
+            messages.send(sender, Message.NO_PERMISSION);
             return true;
         }
 
         plugin.reloadPluginConfig();
-        sender.sendMessage(ChatColor.GRAY + "系统 >> " + ChatColor.BLUE + "密钥认证插件配置已重载！");
-        sender.sendMessage(ChatColor.GRAY + "系统 >> " + ChatColor.GREEN + "当前密钥: " + plugin.getCurrentKey());
+        // 重载后重新取一次，语言文件可能已经改变
+        messages = plugin.getMessages().of(sender);
+        messages.send(sender, Message.RELOAD_DONE);
+        String currentKey = plugin.getCurrentKey();
+        if (currentKey != null) {
+            messages.send(sender, Message.RELOAD_CURRENT_KEY, currentKey);
+        } else {
+            messages.send(sender, Message.RELOAD_KEY_HASHED);
+        }
 
         return true;
     }
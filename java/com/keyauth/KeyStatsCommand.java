@@ -1,12 +1,15 @@
 package com.keyauth;
 
+import com.keyauth.api.StatsFormat;
+import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
-import java.util.List;
+import java.io.File;
+import java.time.LocalDateTime;
 
 public class KeyStatsCommand implements CommandExecutor {
 
@@ -18,43 +21,121 @@ public class KeyStatsCommand implements CommandExecutor {
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        MessageBundle messages = plugin.getMessages().of(sender);
         if (!sender.hasPermission("keyauth.stats")) {
-            sender.sendMessage(ChatColor.RED + "你没有权限使用这个命令！");
+            messages.send(sender, Message.NO_PERMISSION);
             return true;
         }
 
-        List<Long> times = plugin.getVerificationTimes();
+        if (args.length > 0 && args[0].equalsIgnoreCase("export")) {
+            export(sender, messages, args);
+            return true;
+        }
 
-        if (times.isEmpty()) {
-            sender.sendMessage(ChatColor.GRAY + "系统 >> " + ChatColor.BLUE + "暂无验证统计数据。");
+        // 清空不依赖当前是否有记录，和导出一样先于汇总处理
+        if (args.length > 0 && args[0].equalsIgnoreCase("clear")) {
+            if (!sender.hasPermission("keyauth.stats.clear")) {
+                messages.send(sender, Message.NO_PERMISSION);
+                return true;
+            }
+            plugin.clearStatistics();
+            messages.send(sender, Message.STATS_CLEARED);
             return true;
         }
 
-        // 计算统计数据
-        long total = 0;
-        long fastest = Long.MAX_VALUE;
-        long slowest = 0;
+        // 负载状态
+        TickGovernor governor = plugin.getGovernor();
+        messages.send(sender, Message.STATS_GOVERNOR, modeColor(governor.getMode()).toString() + governor.getMode(),
+                MessageBundle.decimal(governor.getTps(), 1), MessageBundle.decimal(governor.getAveragePluginMillis(), 3));
 
-        for (Long time : times) {
-            total += time;
-            if (time < fastest) fastest = time;
-            if (time > slowest) slowest = time;
+        // 多服同步状态
+        KeySync sync = plugin.getKeySync();
+        if (sync != null) {
+            messages.send(sender, sync.isLeader() ? Message.STATS_SYNC_LEADER : Message.STATS_SYNC, sync.getNodeId(), sync.getAppliedEpoch());
         }
 
-        double avg = total / (double) times.size() / 1000.0;
-        double fastestSec = fastest / 1000.0;
-        double slowestSec = slowest / 1000.0;
+        // 汇总值随记录追加维护，不需要遍历全部记录
+        VerificationLog log = plugin.getVerificationLog();
+        int count = log.size();
 
-        sender.sendMessage(ChatColor.GRAY + "系统 >> " + ChatColor.BLUE + "总验证次数: " + ChatColor.GREEN + times.size());
-        sender.sendMessage(ChatColor.GRAY + "系统 >> " + ChatColor.BLUE + "最快验证: " + ChatColor.GREEN + String.format("%.2f", fastestSec) + "秒");
-        sender.sendMessage(ChatColor.GRAY + "系统 >> " + ChatColor.BLUE + "最慢验证: " + ChatColor.GREEN + String.format("%.2f", slowestSec) + "秒");
-        sender.sendMessage(ChatColor.GRAY + "系统 >> " + ChatColor.BLUE + "平均验证: " + ChatColor.GREEN + String.format("%.2f", avg) + "秒");
+        // 各密钥域分别统计，每个域一行
+        for (KeyRealm realm : plugin.getRealms().all()) {
+            VerificationLog realmLog = realm.getLog();
+            int realmCount = realmLog.size();
+            double realmAvg = realmCount == 0 ? 0 : realmLog.getTotalDuration() / (double) realmCount / 1000.0;
+            messages.send(sender, Message.STATS_REALM, realm.name, realmCount, MessageBundle.decimal(realmAvg, 2));
+        }
 
-        if (args.length > 0 && args[0].equalsIgnoreCase("clear") && sender.hasPermission("keyauth.stats.clear")) {
-            plugin.clearStatistics();
-            sender.sendMessage(ChatColor.GRAY + "系统 >> " + ChatColor.BLUE + "验证统计已清空！");
+        if (count == 0) {
+            messages.send(sender, Message.STATS_EMPTY);
+            return true;
         }
 
+        double avg = log.getTotalDuration() / (double) count / 1000.0;
+        double fastestSec = log.getFastest() / 1000.0;
+        double slowestSec = log.getSlowest() / 1000.0;
+
+        messages.send(sender, Message.STATS_TOTAL, count);
+        messages.send(sender, Message.STATS_FASTEST, MessageBundle.decimal(fastestSec, 2));
+        messages.send(sender, Message.STATS_SLOWEST, MessageBundle.decimal(slowestSec, 2));
+        messages.send(sender, Message.STATS_AVERAGE, MessageBundle.decimal(avg, 2));
         return true;
     }
+
+    private void export(CommandSender sender, MessageBundle messages, String[] args) {
+        if (!sender.hasPermission("keyauth.stats.export")) {
+            messages.send(sender, Message.NO_PERMISSION);
+            return;
+        }
+
+        StatsFormat format = StatsFormat.CSV;
+        if (args.length > 1) {
+            if (args[1].equalsIgnoreCase("bin") || args[1].equalsIgnoreCase("binary")) {
+                format = StatsFormat.BINARY;
+            } else if (!args[1].equalsIgnoreCase("csv")) {
+                messages.send(sender, Message.STATS_EXPORT_USAGE);
+                return;
+            }
+        }
+
+        // 指定密钥域时导出该域的统计
+        VerificationLog log = plugin.getVerificationLog();
+        String prefix = "verifications-";
+        if (args.length > 2) {
+            KeyRealm realm = plugin.getRealms().find(args[2]);
+            if (realm == null) {
+                messages.send(sender, Message.STATS_EXPORT_USAGE);
+                return;
+            }
+            log = realm.getLog();
+            prefix = "verifications-" + realm.name + "-";
+        }
+
+        String name = prefix + LocalDateTime.now().format(KeyAuthPlugin.FILE_TIMESTAMP) + "." + format.getExtension();
+        File target = new File(new File(plugin.getDataFolder(), "exports"), name);
+        long start = System.currentTimeMillis();
+        messages.send(sender, Message.STATS_EXPORT_STARTED, log.size(), "exports/" + name);
+
+        // 完成回调在后台线程上，回到主线程再发消息
+        plugin.exportStatistics(log, target.toPath(), format).whenComplete((written, error) -> Bukkit.getScheduler().runTask(plugin, () -> {
+            if (error != null) {
+                plugin.getLogger().warning("导出验证统计失败: " + error.getMessage());
+                messages.send(sender, Message.STATS_EXPORT_FAILED, error.getMessage());
+            } else {
+                messages.send(sender, Message.STATS_EXPORT_DONE, written, "exports/" + name,
+                        MessageBundle.decimal((System.currentTimeMillis() - start) / 1000.0, 2));
+            }
+        }));
+    }
+
+    private ChatColor modeColor(TickGovernor.Mode mode) {
+        switch (mode) {
+            case CRITICAL:
+                return ChatColor.RED;
+            case DEGRADED:
+                return ChatColor.YELLOW;
+            default:
+                return ChatColor.GREEN;
+        }
+    }
 }
\ No newline at end of file
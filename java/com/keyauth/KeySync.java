@@ -0,0 +1,321 @@
+package com.keyauth;
+
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 多服密钥同步：所有子服共用一个目录，目录中的状态文件是密钥的唯一来源
+// 更新时先抢文件锁，持锁者在原纪元号上加一写入新密钥，其余节点读取后采用
+// 各节点采用纪元号更大的状态；纪元相同而内容不同时（文件锁失效、两个节点同时写入）以文件中最后的内容为准，
+// 更新后过一段时间再读一次文件确认，保证所有节点最终采用同一把密钥；只有最新纪元的写入者导出网页
+class KeySync {
+
+    static final String STATE_FILE = "key-state.properties";
+    private static final String LOCK_FILE = "rotation.lock";
+    // 更新后再次读取共享状态的延迟，覆盖其他节点在锁失效时稍后写入的情况
+    private static final long CONFIRM_DELAY_TICKS = 100L;
+
+    private final KeyAuthPlugin plugin;
+    private final AtomicBoolean rotating = new AtomicBoolean();
+    private volatile Path directory;
+    private String nodeId;
+    private Thread watcher;
+    private WatchService watchService;
+    // 以下三项只在主线程修改
+    private volatile long appliedEpoch;
+    private volatile String appliedLeader;
+    private volatile String appliedContent;
+    // 本节点最近一次写入的纪元和明文，无论先从监听线程还是写入线程读到都能带上明文
+    private volatile long writtenEpoch;
+    private volatile String writtenKey;
+
+    KeySync(KeyAuthPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    // 共享状态文件中的一条记录；哈希模式下不写出明文
+    static final class State {
+        final long epoch;
+        final String leader;
+        final long nextUpdateTime;
+        final String key;
+        final String salt;
+        final String hash;
+        final int iterations;
+        // 只在本节点生成密钥时携带明文，用于本地显示和导出
+        final String plainKey;
+
+        State(long epoch, String leader, long nextUpdateTime, String key, String salt, String hash, int iterations, String plainKey) {
+            this.epoch = epoch;
+            this.leader = leader;
+            this.nextUpdateTime = nextUpdateTime;
+            this.key = key;
+            this.salt = salt;
+            this.hash = hash;
+            this.iterations = iterations;
+            this.plainKey = plainKey;
+        }
+
+        boolean isHashed() {
+            return hash != null;
+        }
+
+        // 同一纪元下区分不同写入的内容标识，不含明文
+        String content() {
+            return leader + "|" + (isHashed() ? hash : key) + "|" + nextUpdateTime;
+        }
+    }
+
+    // 主线程调用
+    void configure(FileConfiguration config) {
+        String configuredId = config.getString("sync.node-id", "");
+        if (configuredId != null && !configuredId.isEmpty()) {
+            nodeId = configuredId;
+        } else if (nodeId == null) {
+            nodeId = "node-" + UUID.randomUUID().toString().substring(0, 8);
+        }
+
+        Path configured = new File(config.getString("sync.directory", "plugins/KeyAuth/shared")).toPath().toAbsolutePath();
+        if (!configured.equals(directory)) {
+            stopWatcher();
+            directory = configured;
+            appliedEpoch = 0;
+            appliedLeader = null;
+            appliedContent = null;
+            try {
+                Files.createDirectories(directory);
+                startWatcher();
+            } catch (IOException e) {
+                plugin.getLogger().warning("无法监听密钥同步目录，将只在更新时读取: " + e.getMessage());
+            }
+        }
+
+        // 读取或初始化共享状态，完成后回到主线程应用
+        State seed = plugin.snapshotKeyState(nodeId);
+        Path dir = directory;
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                State state = read(dir);
+                if (state == null && seed != null) {
+                    state = withLock(dir, () -> {
+                        State existing = read(dir);
+                        return existing != null ? existing : write(dir, new State(1, seed.leader, seed.nextUpdateTime, seed.key, seed.salt, seed.hash, seed.iterations, seed.plainKey));
+                    });
+                }
+                deliver(state, false);
+            } catch (IOException e) {
+                plugin.getLogger().warning("无法读取共享密钥状态: " + e.getMessage());
+            }
+        });
+    }
+
+    String getNodeId() {
+        return nodeId;
+    }
+
+    long getAppliedEpoch() {
+        return appliedEpoch;
+    }
+
+    // 只有写入当前纪元的节点负责导出网页，尚未同步时谁都不导出
+    boolean isLeader() {
+        return nodeId != null && nodeId.equals(appliedLeader);
+    }
+
+    // 纪元更大，或纪元相同但文件内容与已采用的不同（以文件中的为准）
+    boolean accepts(State state) {
+        if (state.epoch != appliedEpoch) return state.epoch > appliedEpoch;
+        return !state.content().equals(appliedContent);
+    }
+
+    // 主线程在应用状态后调用
+    void markApplied(State state) {
+        appliedEpoch = state.epoch;
+        appliedLeader = state.leader;
+        appliedContent = state.content();
+    }
+
+    // 到达更新时间时由每个节点调用：抢到锁且状态尚未更新的节点生成新密钥，其余节点直接采用
+    void requestRotation(int updateHour, boolean hashed, int iterations) {
+        if (!rotating.compareAndSet(false, true)) return;
+        Path dir = directory;
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                State state = withLock(dir, () -> {
+                    State current = read(dir);
+                    long now = System.currentTimeMillis();
+                    if (current != null && current.nextUpdateTime > now) {
+                        return current;
+                    }
+
+                    long epoch = current == null ? 1 : current.epoch + 1;
+                    long nextUpdate = KeyAuthPlugin.computeNextUpdateTime(updateHour, now);
+                    String key = KeyAuthPlugin.generateKey();
+                    if (hashed) {
+                        KeyHasher hasher = KeyHasher.create(key, iterations);
+                        return write(dir, new State(epoch, nodeId, nextUpdate, null, hasher.getSalt(), hasher.getHash(), hasher.getIterations(), key));
+                    }
+                    return write(dir, new State(epoch, nodeId, nextUpdate, key, null, null, 0, key));
+                });
+                deliver(state, true);
+            } catch (IOException e) {
+                plugin.getLogger().warning("密钥同步失败，将在下次检查时重试: " + e.getMessage());
+            } finally {
+                rotating.set(false);
+            }
+        });
+
+        // 不依赖目录监听：稍后再读一次文件，锁失效时后写入的节点覆盖了文件，所有节点都改用文件中的状态
+        Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, () -> {
+            if (dir == null || !dir.equals(directory)) return;
+            try {
+                deliver(read(dir), true);
+            } catch (IOException e) {
+                plugin.getLogger().warning("无法读取共享密钥状态: " + e.getMessage());
+            }
+        }, CONFIRM_DELAY_TICKS);
+    }
+
+    void stop() {
+        stopWatcher();
+        directory = null;
+    }
+
+    private void deliver(State state, boolean announce) {
+        if (state == null || !accepts(state)) return;
+        State resolved = state;
+        if (state.plainKey == null && state.epoch == writtenEpoch && nodeId.equals(state.leader)) {
+            resolved = new State(state.epoch, state.leader, state.nextUpdateTime, state.key, state.salt, state.hash, state.iterations, writtenKey);
+        }
+        State applied = resolved;
+        Bukkit.getScheduler().runTask(plugin, () -> plugin.applySharedKeyState(applied, announce));
+    }
+
+    private void startWatcher() throws IOException {
+        WatchService service = directory.getFileSystem().newWatchService();
+        directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Path dir = directory;
+        watchService = service;
+
+        // 本机或同一文件系统上的其他节点写入后立即收到通知；网络文件系统上收不到时由更新检查兜底
+        watcher = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = service.take();
+                    boolean changed = false;
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        Object context = event.context();
+                        if (context != null && STATE_FILE.equals(context.toString())) changed = true;
+                    }
+                    key.reset();
+                    if (changed) {
+                        try {
+                            deliver(read(dir), true);
+                        } catch (IOException e) {
+                            plugin.getLogger().warning("无法读取共享密钥状态: " + e.getMessage());
+                        }
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException ignored) {
+                // 插件关闭或目录变更
+            }
+        }, "KeyAuth-KeySync");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void stopWatcher() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+                // 关闭失败不影响后续
+            }
+            watchService = null;
+        }
+        if (watcher != null) {
+            watcher.interrupt();
+            watcher = null;
+        }
+    }
+
+    private interface LockedAction {
+        State run() throws IOException;
+    }
+
+    // 跨进程的文件锁，NFS 上由锁服务保证互斥
+    private static State withLock(Path dir, LockedAction action) throws IOException {
+        try (FileChannel channel = FileChannel.open(dir.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            return action.run();
+        }
+    }
+
+    static State read(Path dir) throws IOException {
+        Path file = dir.resolve(STATE_FILE);
+        if (!Files.exists(file)) return null;
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        try {
+            return new State(
+                    Long.parseLong(properties.getProperty("epoch")),
+                    properties.getProperty("leader"),
+                    Long.parseLong(properties.getProperty("next-update")),
+                    properties.getProperty("key"),
+                    properties.getProperty("key-salt"),
+                    properties.getProperty("key-hash"),
+                    Integer.parseInt(properties.getProperty("key-iterations", "0")),
+                    null);
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IOException("共享密钥状态文件格式错误", e);
+        }
+    }
+
+    // 先写临时文件再原子替换，其他节点不会读到写了一半的文件
+    // 返回重新读取的内容；文件锁失效时读到的可能是其他节点的写入，由 accepts 和更新后的确认读取收敛
+    private State write(Path dir, State state) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("epoch", Long.toString(state.epoch));
+        properties.setProperty("leader", state.leader);
+        properties.setProperty("next-update", Long.toString(state.nextUpdateTime));
+        properties.setProperty("written-at", Long.toString(System.currentTimeMillis()));
+        if (state.isHashed()) {
+            properties.setProperty("key-salt", state.salt);
+            properties.setProperty("key-hash", state.hash);
+            properties.setProperty("key-iterations", Integer.toString(state.iterations));
+        } else {
+            properties.setProperty("key", state.key);
+        }
+
+        writtenKey = state.plainKey;
+        writtenEpoch = state.epoch;
+        Path temp = dir.resolve("." + STATE_FILE + "." + nodeId + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, "KeyAuth shared key state");
+        }
+        Files.move(temp, dir.resolve(STATE_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return read(dir);
+    }
+}
@@ -0,0 +1,95 @@
+package com.keyauth;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// 在有界线程池中校验哈希密钥，避免在主线程上做耗时的密钥推导
+public class KeyVerifier {
+
+    public enum Result { MATCH, MISMATCH, BUSY }
+
+    private static final int QUEUE_CAPACITY = 128;
+    private static final int CACHE_SIZE = 64;
+
+    private final ThreadPoolExecutor executor;
+    // 最近推导成功的输入，密钥更新或重载时清空
+    private final Set<String> recentMatches = Collections.synchronizedSet(Collections.newSetFromMap(
+            new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            }));
+    private volatile KeyHasher hasher;
+
+    public KeyVerifier(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "KeyAuth-Verifier-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public void setHasher(KeyHasher hasher) {
+        this.hasher = hasher;
+        recentMatches.clear();
+    }
+
+    public KeyHasher getHasher() {
+        return hasher;
+    }
+
+    // 在校验线程上为新密钥推导哈希（每日更新时使用）；线程池已满或已关闭时回调 null
+    // callback 在校验线程上执行，由调用方负责切回主线程
+    public void derive(String key, int iterations, Consumer<KeyHasher> callback) {
+        try {
+            executor.execute(() -> callback.accept(KeyHasher.create(key, iterations)));
+        } catch (RejectedExecutionException e) {
+            callback.accept(null);
+        }
+    }
+
+    // callback 在校验线程上执行，由调用方负责切回主线程
+    public void verify(String input, Consumer<Result> callback) {
+        KeyHasher current = hasher;
+        if (current == null) {
+            callback.accept(Result.MISMATCH);
+            return;
+        }
+
+        // 命中缓存时直接返回，不再进行推导
+        if (recentMatches.contains(input)) {
+            callback.accept(Result.MATCH);
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                boolean matched = current.matches(input);
+                // 推导期间密钥可能已更新，旧结果不写入缓存
+                if (matched && current == hasher) {
+                    recentMatches.add(input);
+                }
+                callback.accept(matched ? Result.MATCH : Result.MISMATCH);
+            });
+        } catch (RejectedExecutionException e) {
+            callback.accept(Result.BUSY);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        recentMatches.clear();
+    }
+}
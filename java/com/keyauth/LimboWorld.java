@@ -0,0 +1,246 @@
+package com.keyauth;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Difficulty;
+import org.bukkit.GameRule;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.generator.ChunkGenerator;
+import org.bukkit.generator.WorldInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 未验证玩家的等待世界：虚空地形、只有出生点一块屏障方块，不生成生物、不随机刻、不保存
+// 玩家加入时直接出生在这里，真实位置的区块在验证通过前既不加载也不发送
+class LimboWorld {
+
+    private static final String LOCATIONS_FILE = "limbo-locations.yml";
+    private static final int FLOOR_Y = 64;
+
+    private final KeyAuthPlugin plugin;
+    private final World world;
+    private final Location spawn;
+    // 老玩家进入等待世界前的真实位置；新玩家的真实位置就是主世界出生点，不需要记录
+    // 只保存世界名和坐标，世界在送回时才查找，启用时尚未加载的世界（例如由 Multiverse 稍后加载）不影响读取
+    private final Map<UUID, RealLocation> realLocations = new ConcurrentHashMap<>();
+    // 已排队但尚未执行的异步保存，连续变化只写一次
+    private final AtomicBoolean saveQueued = new AtomicBoolean();
+
+    private LimboWorld(KeyAuthPlugin plugin, World world) {
+        this.plugin = plugin;
+        this.world = world;
+        this.spawn = new Location(world, 0.5, FLOOR_Y + 1, 0.5);
+    }
+
+    // 主线程调用；世界已存在时直接加载
+    static LimboWorld load(KeyAuthPlugin plugin, String name) {
+        World world = Bukkit.getWorld(name);
+        if (world == null) {
+            world = new WorldCreator(name)
+                    .generator(new VoidGenerator())
+                    .environment(World.Environment.NORMAL)
+                    .generateStructures(false)
+                    .createWorld();
+        }
+        if (world == null) return null;
+
+        world.setGameRule(GameRule.DO_MOB_SPAWNING, false);
+        world.setGameRule(GameRule.DO_PATROL_SPAWNING, false);
+        world.setGameRule(GameRule.DO_TRADER_SPAWNING, false);
+        world.setGameRule(GameRule.DO_WARDEN_SPAWNING, false);
+        world.setGameRule(GameRule.DO_DAYLIGHT_CYCLE, false);
+        world.setGameRule(GameRule.DO_WEATHER_CYCLE, false);
+        world.setGameRule(GameRule.DO_FIRE_TICK, false);
+        world.setGameRule(GameRule.DO_INSOMNIA, false);
+        world.setGameRule(GameRule.ANNOUNCE_ADVANCEMENTS, false);
+        world.setGameRule(GameRule.FALL_DAMAGE, false);
+        world.setGameRule(GameRule.RANDOM_TICK_SPEED, 0);
+        world.setGameRule(GameRule.SPAWN_CHUNK_RADIUS, 0);
+        world.setDifficulty(Difficulty.PEACEFUL);
+        world.setTime(6000);
+        world.setStorm(false);
+        world.setThundering(false);
+        world.setSpawnLocation(0, FLOOR_Y + 1, 0);
+        world.setAutoSave(false);
+
+        LimboWorld limbo = new LimboWorld(plugin, world);
+        limbo.loadLocations();
+        return limbo;
+    }
+
+    String getName() {
+        return world.getName();
+    }
+
+    boolean contains(Player player) {
+        return player.getWorld() == world;
+    }
+
+    // PlayerSpawnLocationEvent 中调用，返回玩家实际出生的位置
+    Location onSpawn(Player player, Location requested, boolean verifiedOnJoin) {
+        boolean inLimbo = requested != null && requested.getWorld() == world;
+        if (verifiedOnJoin) {
+            // 上次未验证就退出的 OP 或受信任玩家，直接回到真实位置
+            if (inLimbo) return realLocation(player.getUniqueId());
+            realLocations.remove(player.getUniqueId());
+            return requested;
+        }
+        // 上次退出时已在等待世界中的玩家沿用之前记录的位置
+        if (!inLimbo && requested != null && player.hasPlayedBefore()) {
+            realLocations.put(player.getUniqueId(), new RealLocation(requested));
+            // 存档中的位置马上会变成等待世界，立即落盘，服务器崩溃后也能送回真实位置
+            saveLocationsAsync();
+        }
+        return spawn.clone();
+    }
+
+    // 验证通过后送回真实位置；不在等待世界中（例如密钥更新后重新验证）时不移动
+    void release(Player player) {
+        if (!contains(player)) return;
+        player.teleport(realLocation(player.getUniqueId()));
+    }
+
+    void releaseAll(Iterable<? extends Player> online) {
+        for (Player player : online) {
+            release(player);
+        }
+    }
+
+    // 验证通过后要去的世界，不移除记录
+    String getRealWorldName(UUID playerId) {
+        RealLocation real = realLocations.get(playerId);
+        return real != null ? real.world : Bukkit.getWorlds().get(0).getName();
+    }
+
+    private Location realLocation(UUID playerId) {
+        RealLocation real = realLocations.remove(playerId);
+        if (real == null) return Bukkit.getWorlds().get(0).getSpawnLocation();
+
+        saveLocationsAsync();
+        World world = Bukkit.getWorld(real.world);
+        if (world == null) {
+            plugin.getLogger().warning("世界 " + real.world + " 未加载，玩家 " + playerId + " 被送回主世界出生点");
+            return Bukkit.getWorlds().get(0).getSpawnLocation();
+        }
+        return new Location(world, real.x, real.y, real.z, real.yaw, real.pitch);
+    }
+
+    // 未验证就退出的老玩家，存档中的位置已在等待世界，重启后仍需知道他们的真实位置
+    synchronized void saveLocations() {
+        YamlConfiguration config = new YamlConfiguration();
+        for (Map.Entry<UUID, RealLocation> entry : realLocations.entrySet()) {
+            RealLocation real = entry.getValue();
+            String path = entry.getKey().toString();
+            config.set(path + ".world", real.world);
+            config.set(path + ".x", real.x);
+            config.set(path + ".y", real.y);
+            config.set(path + ".z", real.z);
+            config.set(path + ".yaw", real.yaw);
+            config.set(path + ".pitch", real.pitch);
+        }
+        try {
+            config.save(new File(plugin.getDataFolder(), LOCATIONS_FILE));
+        } catch (IOException e) {
+            plugin.getLogger().warning("无法保存等待世界的玩家位置: " + e.getMessage());
+        }
+    }
+
+    private void saveLocationsAsync() {
+        if (!plugin.isEnabled() || !saveQueued.compareAndSet(false, true)) return;
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            saveQueued.set(false);
+            saveLocations();
+        });
+    }
+
+    private void loadLocations() {
+        File file = new File(plugin.getDataFolder(), LOCATIONS_FILE);
+        if (!file.exists()) return;
+
+        YamlConfiguration config = new YamlConfiguration();
+        try {
+            config.load(file);
+        } catch (IOException | InvalidConfigurationException | IllegalArgumentException e) {
+            // 之后的保存会覆盖该文件，先留一份副本以便手动恢复
+            File backup = new File(plugin.getDataFolder(), LOCATIONS_FILE + ".broken");
+            try {
+                Files.copy(file.toPath(), backup.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException ignored) {
+                // 无法备份时仍继续启用
+            }
+            plugin.getLogger().warning("无法读取等待世界的玩家位置，原文件已备份为 " + backup.getName() + ": " + e.getMessage());
+            return;
+        }
+        for (String key : config.getKeys(false)) {
+            UUID playerId;
+            try {
+                playerId = UUID.fromString(key);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            Object value = config.get(key);
+            if (value instanceof ConfigurationSection) {
+                ConfigurationSection section = (ConfigurationSection) value;
+                String world = section.getString("world");
+                if (world == null) continue;
+                realLocations.put(playerId, new RealLocation(world, section.getDouble("x"), section.getDouble("y"), section.getDouble("z"),
+                        (float) section.getDouble("yaw"), (float) section.getDouble("pitch")));
+            } else if (value instanceof Location && ((Location) value).getWorld() != null) {
+                // 旧版本直接序列化的 Location
+                realLocations.put(playerId, new RealLocation((Location) value));
+            }
+        }
+    }
+
+    private static final class RealLocation {
+        final String world;
+        final double x;
+        final double y;
+        final double z;
+        final float yaw;
+        final float pitch;
+
+        RealLocation(String world, double x, double y, double z, float yaw, float pitch) {
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.yaw = yaw;
+            this.pitch = pitch;
+        }
+
+        RealLocation(Location location) {
+            this(location.getWorld().getName(), location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
+        }
+    }
+
+    // 只在出生点所在区块放一块屏障方块，其余全部为空气
+    private static final class VoidGenerator extends ChunkGenerator {
+
+        @Override
+        public void generateSurface(WorldInfo worldInfo, Random random, int chunkX, int chunkZ, ChunkData chunkData) {
+            if (chunkX == 0 && chunkZ == 0) {
+                chunkData.setBlock(0, FLOOR_Y, 0, Material.BARRIER);
+            }
+        }
+
+        @Override
+        public Location getFixedSpawnLocation(World world, Random random) {
+            return new Location(world, 0.5, FLOOR_Y + 1, 0.5);
+        }
+    }
+}
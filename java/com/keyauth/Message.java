@@ -0,0 +1,79 @@
+package com.keyauth;
+
+// 消息键和占位符名称，占位符按声明顺序对应 MessageBundle.format 的参数
+enum Message {
+
+    PLAYER_ONLY("player-only"),
+    NO_PERMISSION("no-permission"),
+    ALREADY_VERIFIED("already-verified"),
+    KEY_USAGE("key-usage"),
+    PROMPT("prompt", "seconds"),
+    PROMPT_TITLE("prompt-title"),
+    PROMPT_SUBTITLE("prompt-subtitle"),
+    BLOCKED_NOTICE("blocked-notice"),
+    KICK_TIMEOUT("kick-timeout"),
+    KEY_ROTATED("key-rotated"),
+    REVERIFY_REQUIRED("reverify-required"),
+    REALM_CHANGED("realm-changed", "realm"),
+    REALM_DEFAULT("realm-default"),
+    TRUSTED_NETWORK("trusted-network"),
+    PROXY_VERIFIED("proxy-verified"),
+    VERIFYING("verifying"),
+    VERIFIER_BUSY("verifier-busy"),
+    VERIFY_SUCCESS("verify-success"),
+    VERIFY_FAILED("verify-failed"),
+    SUCCESS_TITLE("success-title"),
+    SUCCESS_SUBTITLE("success-subtitle", "seconds", "percentile"),
+    WELCOME_TITLE("welcome-title", "player"),
+    WELCOME_SUBTITLE("welcome-subtitle"),
+    INFO_NEXT_UPDATE("info-next-update", "time"),
+    INFO_REMAINING("info-remaining", "hours", "minutes"),
+    INFO_AUTO_UPDATE_ON("info-auto-update-on"),
+    INFO_AUTO_UPDATE_OFF("info-auto-update-off"),
+    INFO_WEB("info-web"),
+    INFO_REALM("info-realm", "realm"),
+    STATS_GOVERNOR("stats-governor", "mode", "tps", "cost"),
+    STATS_SYNC("stats-sync", "node", "epoch"),
+    STATS_SYNC_LEADER("stats-sync-leader", "node", "epoch"),
+    STATS_EMPTY("stats-empty"),
+    STATS_TOTAL("stats-total", "count"),
+    STATS_FASTEST("stats-fastest", "seconds"),
+    STATS_SLOWEST("stats-slowest", "seconds"),
+    STATS_AVERAGE("stats-average", "seconds"),
+    STATS_REALM("stats-realm", "realm", "count", "seconds"),
+    STATS_CLEARED("stats-cleared"),
+    STATS_EXPORT_USAGE("stats-export-usage"),
+    STATS_EXPORT_STARTED("stats-export-started", "count", "file"),
+    STATS_EXPORT_DONE("stats-export-done", "count", "file", "seconds"),
+    STATS_EXPORT_FAILED("stats-export-failed", "error"),
+    CODES_DISABLED("codes-disabled"),
+    CODES_COUNT("codes-count", "count", "max"),
+    CODES_CLEARED("codes-cleared"),
+    CODES_USAGE("codes-usage"),
+    CODES_NOT_NUMBER("codes-not-number"),
+    CODES_NOT_POSITIVE("codes-not-positive"),
+    CODES_TTL_TOO_LONG("codes-ttl-too-long", "hours"),
+    CODES_GENERATING("codes-generating", "count"),
+    CODES_GENERATED("codes-generated", "count", "hours"),
+    CODES_SAVED("codes-saved", "file"),
+    CODES_LIMIT_REACHED("codes-limit-reached", "max"),
+    RELOAD_DONE("reload-done"),
+    RELOAD_CURRENT_KEY("reload-current-key", "key"),
+    RELOAD_KEY_HASHED("reload-key-hashed");
+
+    private final String key;
+    private final String[] placeholders;
+
+    Message(String key, String... placeholders) {
+        this.key = key;
+        this.placeholders = placeholders;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    String[] getPlaceholders() {
+        return placeholders;
+    }
+}
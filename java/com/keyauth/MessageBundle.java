@@ -0,0 +1,57 @@
+package com.keyauth;
+
+import org.bukkit.command.CommandSender;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+
+// 某个语言的全部已编译模板，加载后只读，可在任意线程使用
+final class MessageBundle {
+
+    private final String locale;
+    private final EnumMap<Message, MessageTemplate> templates;
+    private final DateTimeFormatter dateTimeFormatter;
+
+    MessageBundle(String locale, EnumMap<Message, MessageTemplate> templates, DateTimeFormatter dateTimeFormatter) {
+        this.locale = locale;
+        this.templates = templates;
+        this.dateTimeFormatter = dateTimeFormatter;
+    }
+
+    String getLocale() {
+        return locale;
+    }
+
+    String format(Message message, Object... args) {
+        return templates.get(message).format(args);
+    }
+
+    void send(CommandSender sender, Message message, Object... args) {
+        sender.sendMessage(format(message, args));
+    }
+
+    // DateTimeFormatter 不可变且线程安全，每个语言只创建一次
+    String formatTime(long millis) {
+        return dateTimeFormatter.format(Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()));
+    }
+
+    // 固定小数位，代替 String.format 以免每次解析格式串
+    static String decimal(double value, int digits) {
+        long scale = 1;
+        for (int i = 0; i < digits; i++) scale *= 10;
+        long scaled = Math.round(Math.abs(value) * scale);
+
+        StringBuilder builder = new StringBuilder(16);
+        if (value < 0 && scaled != 0) builder.append('-');
+        builder.append(scaled / scale);
+        if (digits > 0) {
+            builder.append('.');
+            String fraction = Long.toString(scaled % scale);
+            for (int i = fraction.length(); i < digits; i++) builder.append('0');
+            builder.append(fraction);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,170 @@
+package com.keyauth;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 多语言消息目录：加载时把每个语言编译成 MessageBundle，玩家加入时确定一次所用语言
+class MessageCatalog {
+
+    private static final String BASE_LOCALE = "zh_CN";
+    private static final String[] BUILTIN_LOCALES = {"zh_CN", "en_US", "ja_JP"};
+
+    private final KeyAuthPlugin plugin;
+    private final Map<UUID, MessageBundle> players = new ConcurrentHashMap<>();
+    // 键为小写的完整语言标签（en_us）和语言代码（en）
+    private volatile Map<String, MessageBundle> bundles = new HashMap<>();
+    private volatile MessageBundle defaultBundle;
+
+    MessageCatalog(KeyAuthPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    // 内置语言 + 插件目录 messages/ 下的覆盖和新增语言，缺少的键回退到中文
+    void load(String defaultLocale) {
+        Properties base = new Properties();
+        readResource(base, BASE_LOCALE);
+
+        Map<String, Properties> sources = new HashMap<>();
+        for (String locale : BUILTIN_LOCALES) {
+            Properties properties = new Properties(base);
+            readResource(properties, locale);
+            sources.put(locale, properties);
+        }
+
+        File[] files = new File(plugin.getDataFolder(), "messages").listFiles((dir, name) -> name.startsWith("messages_") && name.endsWith(".properties"));
+        if (files != null) {
+            for (File file : files) {
+                String locale = file.getName().substring("messages_".length(), file.getName().length() - ".properties".length());
+                Properties properties = sources.computeIfAbsent(locale, key -> new Properties(base));
+                try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                } catch (IOException e) {
+                    plugin.getLogger().warning("无法读取语言文件 " + file.getName() + ": " + e.getMessage());
+                }
+            }
+        }
+
+        Map<String, MessageBundle> compiled = new HashMap<>();
+        for (Map.Entry<String, Properties> entry : sources.entrySet()) {
+            MessageBundle bundle = compile(entry.getKey(), entry.getValue());
+            String tag = entry.getKey().toLowerCase(Locale.ROOT);
+            compiled.put(tag, bundle);
+            // 同一语言代码以内置语言优先
+            String language = tag.split("_")[0];
+            if (!compiled.containsKey(language) || isBuiltin(entry.getKey())) {
+                compiled.put(language, bundle);
+            }
+        }
+
+        MessageBundle fallback = compiled.get(defaultLocale.toLowerCase(Locale.ROOT));
+        if (fallback == null) {
+            plugin.getLogger().warning("找不到默认语言 " + defaultLocale + "，使用 " + BASE_LOCALE);
+            fallback = compiled.get(BASE_LOCALE.toLowerCase(Locale.ROOT));
+        }
+        this.bundles = compiled;
+        this.defaultBundle = fallback;
+
+        // 重载后按新目录重新确定在线玩家的语言
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            bind(player);
+        }
+    }
+
+    MessageBundle getDefault() {
+        return defaultBundle;
+    }
+
+    // 客户端语言形如 en_us、zh_cn，先匹配完整标签，再匹配语言代码
+    MessageBundle resolve(String clientLocale) {
+        if (clientLocale == null || clientLocale.isEmpty()) return defaultBundle;
+        Map<String, MessageBundle> current = bundles;
+        String tag = clientLocale.toLowerCase(Locale.ROOT).replace('-', '_');
+        MessageBundle bundle = current.get(tag);
+        if (bundle == null) {
+            int separator = tag.indexOf('_');
+            bundle = current.get(separator > 0 ? tag.substring(0, separator) : tag);
+        }
+        return bundle != null ? bundle : defaultBundle;
+    }
+
+    void bind(Player player) {
+        players.put(player.getUniqueId(), resolve(player.getLocale()));
+    }
+
+    void bind(Player player, String locale) {
+        players.put(player.getUniqueId(), resolve(locale));
+    }
+
+    void unbind(UUID playerId) {
+        players.remove(playerId);
+    }
+
+    void clear() {
+        players.clear();
+    }
+
+    MessageBundle of(CommandSender sender) {
+        if (sender instanceof Player) {
+            return players.getOrDefault(((Player) sender).getUniqueId(), defaultBundle);
+        }
+        return defaultBundle;
+    }
+
+    private MessageBundle compile(String locale, Properties properties) {
+        String prefix = properties.getProperty("prefix", "");
+        EnumMap<Message, MessageTemplate> templates = new EnumMap<>(Message.class);
+        for (Message message : Message.values()) {
+            String text = properties.getProperty(message.getKey());
+            if (text == null) {
+                plugin.getLogger().warning("语言 " + locale + " 缺少消息: " + message.getKey());
+                text = message.getKey();
+            }
+            templates.put(message, MessageTemplate.compile(text, message.getPlaceholders(), prefix));
+        }
+
+        DateTimeFormatter formatter;
+        try {
+            formatter = DateTimeFormatter.ofPattern(properties.getProperty("datetime-format", "yyyy-MM-dd HH:mm:ss"));
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("语言 " + locale + " 的 datetime-format 无效: " + e.getMessage());
+            formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        }
+        return new MessageBundle(locale, templates, formatter);
+    }
+
+    private void readResource(Properties properties, String locale) {
+        try (InputStream in = plugin.getResource("messages/messages_" + locale + ".properties")) {
+            if (in == null) {
+                plugin.getLogger().warning("插件中缺少语言文件: " + locale);
+                return;
+            }
+            properties.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            plugin.getLogger().warning("无法读取语言文件 " + locale + ": " + e.getMessage());
+        }
+    }
+
+    private static boolean isBuiltin(String locale) {
+        for (String builtin : BUILTIN_LOCALES) {
+            if (builtin.equals(locale)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,75 @@
+package com.keyauth;
+
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 预编译的消息模板：颜色代码在加载时转换，文本拆成固定片段和占位符槽位
+// 发送时只按槽位顺序拼接参数，不再解析文本
+final class MessageTemplate {
+
+    private final String[] literals;
+    private final int[] slots;
+    private final String constant;
+    private final int baseLength;
+
+    private MessageTemplate(String[] literals, int[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+        this.constant = slots.length == 0 ? literals[0] : null;
+
+        int length = 0;
+        for (String literal : literals) length += literal.length();
+        this.baseLength = length;
+    }
+
+    // {name} 为占位符，未声明的 {xxx} 按原文保留；{prefix} 在编译时替换为前缀
+    static MessageTemplate compile(String text, String[] placeholders, String prefix) {
+        String source = ChatColor.translateAlternateColorCodes('&', text.replace("{prefix}", prefix));
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            int close = c == '{' ? source.indexOf('}', i) : -1;
+            int slot = close > 0 ? indexOf(placeholders, source.substring(i + 1, close)) : -1;
+            if (slot < 0) {
+                literal.append(c);
+                i++;
+                continue;
+            }
+            literals.add(literal.toString());
+            literal.setLength(0);
+            slots.add(slot);
+            i = close + 1;
+        }
+        literals.add(literal.toString());
+
+        int[] slotArray = new int[slots.size()];
+        for (int j = 0; j < slotArray.length; j++) slotArray[j] = slots.get(j);
+        return new MessageTemplate(literals.toArray(new String[0]), slotArray);
+    }
+
+    String format(Object... args) {
+        if (constant != null) return constant;
+
+        StringBuilder builder = new StringBuilder(baseLength + slots.length * 8);
+        for (int i = 0; i < slots.length; i++) {
+            builder.append(literals[i]);
+            int slot = slots[i];
+            builder.append(slot < args.length ? args[slot] : "");
+        }
+        builder.append(literals[slots.length]);
+        return builder.toString();
+    }
+
+    private static int indexOf(String[] placeholders, String name) {
+        for (int i = 0; i < placeholders.length; i++) {
+            if (placeholders[i].equals(name)) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,319 @@
+package com.keyauth;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 一次性验证码索引：开放寻址的 long 哈希表，验证码编码为 long，每个槽位只占 12 字节
+public class OneTimeCodeStore {
+
+    // 去掉了容易混淆的 I、O、0、1，32 个字符正好每个占 5 位
+    private static final String ALPHABET = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789";
+    private static final int FILE_MAGIC = 0x4B414353; // "KACS"
+    // 版本 1 的过期时间以秒计，2038 年后溢出；版本 2 改为分钟
+    private static final int FILE_VERSION = 2;
+
+    private static final long EMPTY = 0L;
+    private static final long DELETED = -1L;
+    // 保存时每次持锁复制的槽位数（约 200KB），主线程的核销最多等一个分段
+    private static final int SAVE_CHUNK = 16384;
+
+    private final SecureRandom random = new SecureRandom();
+    // 保存之间互斥，与表上的锁分开，写盘期间不阻塞核销
+    private final Object saveLock = new Object();
+    private final int codeLength;
+    private final int maxCodes;
+
+    // 存的是 code + 1，这样 0 和 -1 可以用作空槽和删除标记
+    private long[] keys;
+    // 过期时间：自 1970 年起的分钟数，int 可以表示到公元 6000 年以后
+    private int[] expiries;
+    private int size;
+    private int deleted;
+    private int sweepCursor;
+    private boolean dirty;
+    // 每次重排加一；分段复制期间发生重排时槽位已移动，需要重新复制
+    private int rehashCount;
+
+    public OneTimeCodeStore(int codeLength, int maxCodes) {
+        // 至少 8 位（40 位熵）：/key 没有次数限制，6 位时 50 万个有效验证码下约 2000 次猜测就能命中一个
+        this.codeLength = Math.max(8, Math.min(12, codeLength));
+        this.maxCodes = maxCodes;
+        // 负载因子不超过 0.5，保证探测链很短
+        int capacity = Integer.highestOneBit(Math.max(16, maxCodes) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.expiries = new int[capacity];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int getMaxCodes() {
+        return maxCodes;
+    }
+
+    // 上次保存后是否有变化
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    // 批量生成验证码，超出容量时只生成剩余可用的数量
+    public synchronized List<String> generate(int count, long expireAtMillis) {
+        int expireAt = expiryMinutes(expireAtMillis);
+        int toGenerate = Math.min(count, maxCodes - size);
+        List<String> codes = new ArrayList<>(Math.max(0, toGenerate));
+
+        if (deleted > keys.length / 4) {
+            rehash();
+        }
+
+        long bound = 1L << (codeLength * 5);
+        while (codes.size() < toGenerate) {
+            long code = (random.nextLong() >>> 1) % bound;
+            if (insert(code, expireAt)) {
+                codes.add(encode(code));
+            }
+        }
+        return codes;
+    }
+
+    // 核销验证码：存在且未过期时删除并返回 true
+    public synchronized boolean redeem(String input) {
+        long code = decode(input);
+        if (code < 0) return false;
+
+        int slot = find(code);
+        if (slot < 0) return false;
+
+        boolean valid = expiries[slot] > nowMinutes(System.currentTimeMillis());
+        removeAt(slot);
+        return valid;
+    }
+
+    // 增量清理过期验证码，每次最多扫描 maxSlots 个槽位，避免长时间持有锁
+    public synchronized int sweep(long nowMillis, int maxSlots) {
+        int now = nowMinutes(nowMillis);
+        int removed = 0;
+        int scanned = Math.min(maxSlots, keys.length);
+
+        for (int i = 0; i < scanned; i++) {
+            int slot = sweepCursor;
+            sweepCursor = (sweepCursor + 1) & (keys.length - 1);
+
+            long key = keys[slot];
+            if (key != EMPTY && key != DELETED && expiries[slot] <= now) {
+                removeAt(slot);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        deleted = 0;
+        dirty = true;
+    }
+
+    // 分段复制表，每段单独持锁，写临时文件和替换都在锁外进行，主线程的核销不会等待整表复制或磁盘
+    // 分段之间的核销可能没有反映到本次保存中，但会重新标记为已修改，下次保存时写出
+    public void save(File file) throws IOException {
+        synchronized (saveLock) {
+            int capacity = keys.length;
+            long[] savedKeys = new long[capacity];
+            int[] savedExpiries = new int[capacity];
+            copyInChunks(savedKeys, savedExpiries);
+
+            try {
+                write(file, savedKeys, savedExpiries);
+            } catch (IOException | RuntimeException e) {
+                synchronized (this) {
+                    dirty = true;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void copyInChunks(long[] savedKeys, int[] savedExpiries) {
+        while (true) {
+            int startRehash;
+            synchronized (this) {
+                startRehash = rehashCount;
+                dirty = false;
+            }
+            boolean moved = false;
+            for (int from = 0; from < savedKeys.length && !moved; from += SAVE_CHUNK) {
+                int length = Math.min(SAVE_CHUNK, savedKeys.length - from);
+                synchronized (this) {
+                    if (rehashCount != startRehash) {
+                        moved = true;
+                    } else {
+                        System.arraycopy(keys, from, savedKeys, from, length);
+                        System.arraycopy(expiries, from, savedExpiries, from, length);
+                    }
+                }
+            }
+            if (!moved) return;
+        }
+    }
+
+    private static void write(File file, long[] keys, int[] expiries) throws IOException {
+        int size = 0;
+        for (long key : keys) {
+            if (key != EMPTY && key != DELETED) size++;
+        }
+
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(size);
+            for (int slot = 0; slot < keys.length; slot++) {
+                long key = keys[slot];
+                if (key != EMPTY && key != DELETED) {
+                    out.writeLong(key - 1);
+                    out.writeInt(expiries[slot]);
+                }
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public synchronized void load(File file) throws IOException {
+        if (!file.exists()) return;
+
+        int now = nowMinutes(System.currentTimeMillis());
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int version = in.readInt() == FILE_MAGIC ? in.readInt() : -1;
+            if (version != 1 && version != FILE_VERSION) {
+                throw new IOException("验证码文件格式不正确");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count && size < maxCodes; i++) {
+                long code = in.readLong();
+                int stored = in.readInt();
+                int expireAt = version == 1 ? expiryMinutes(stored * 1000L) : stored;
+                if (expireAt > now) {
+                    insert(code, expireAt);
+                }
+            }
+        }
+    }
+
+    private boolean insert(long code, int expireAt) {
+        long key = code + 1;
+        int mask = keys.length - 1;
+        int slot = mix(code) & mask;
+        int firstDeleted = -1;
+
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) return false;
+            if (keys[slot] == DELETED && firstDeleted < 0) {
+                firstDeleted = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (firstDeleted >= 0) {
+            slot = firstDeleted;
+            deleted--;
+        }
+        keys[slot] = key;
+        expiries[slot] = expireAt;
+        size++;
+        dirty = true;
+        return true;
+    }
+
+    private int find(long code) {
+        long key = code + 1;
+        int mask = keys.length - 1;
+        int slot = mix(code) & mask;
+
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void removeAt(int slot) {
+        keys[slot] = DELETED;
+        size--;
+        deleted++;
+        dirty = true;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldExpiries = expiries;
+        keys = new long[oldKeys.length];
+        expiries = new int[oldExpiries.length];
+        size = 0;
+        deleted = 0;
+        rehashCount++;
+
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            long key = oldKeys[slot];
+            if (key != EMPTY && key != DELETED) {
+                insert(key - 1, oldExpiries[slot]);
+            }
+        }
+    }
+
+    // 向上取整到分钟，超出范围时取边界；过早过期或溢出成负数都会让验证码一生成就失效
+    private static int expiryMinutes(long millis) {
+        long minutes = Math.floorDiv(millis + 59_999L, 60_000L);
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, minutes));
+    }
+
+    private static int nowMinutes(long millis) {
+        return (int) Math.floorDiv(millis, 60_000L);
+    }
+
+    private static int mix(long code) {
+        long h = code * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private String encode(long code) {
+        char[] chars = new char[codeLength];
+        for (int i = codeLength - 1; i >= 0; i--) {
+            chars[i] = ALPHABET.charAt((int) (code & 31));
+            code >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    // 不是合法验证码时返回 -1，不产生任何对象
+    private long decode(String input) {
+        if (input == null || input.length() != codeLength) return -1;
+
+        long code = 0;
+        for (int i = 0; i < codeLength; i++) {
+            int index = ALPHABET.indexOf(Character.toUpperCase(input.charAt(i)));
+            if (index < 0) return -1;
+            code = (code << 5) | index;
+        }
+        return code;
+    }
+}
@@ -0,0 +1,117 @@
+package com.keyauth;
+
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Registry;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeInstance;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 客户端冻结：加入时把行走、飞行速度和跳跃力度设为 0，验证后恢复
+// 客户端自己就走不动，不再每次移动都由服务端回滚，移动事件几乎不需要处理
+// 以下方法除 getAnchor 外只在主线程调用
+class PlayerFreezer {
+
+    // 速度为 0 说明上次冻结后未能恢复（例如服务器崩溃），恢复时改用原版默认值
+    private static final float DEFAULT_WALK_SPEED = 0.2f;
+    private static final float DEFAULT_FLY_SPEED = 0.1f;
+    private static final double DEFAULT_JUMP_STRENGTH = 0.42;
+
+    private final Map<UUID, Frozen> frozen = new ConcurrentHashMap<>();
+    private final Attribute jumpStrength = resolveJumpStrength();
+    private volatile boolean clientSide;
+
+    private static final class Frozen {
+        final float walkSpeed;
+        final float flySpeed;
+        final double jumpStrength;
+        volatile Location anchor;
+
+        Frozen(float walkSpeed, float flySpeed, double jumpStrength, Location anchor) {
+            this.walkSpeed = walkSpeed;
+            this.flySpeed = flySpeed;
+            this.jumpStrength = jumpStrength;
+            this.anchor = anchor;
+        }
+    }
+
+    // freeze.mode: client 为客户端冻结，rollback 为原来的逐次回滚
+    void configure(String mode, Iterable<? extends Player> online) {
+        boolean enable = !"rollback".equalsIgnoreCase(mode);
+        if (enable == clientSide) return;
+        clientSide = enable;
+        if (!enable) {
+            for (Player player : online) {
+                unfreeze(player);
+            }
+        }
+    }
+
+    boolean isClientSide() {
+        return clientSide;
+    }
+
+    void freeze(Player player) {
+        if (!clientSide || frozen.containsKey(player.getUniqueId())) return;
+
+        AttributeInstance jump = jumpStrength != null ? player.getAttribute(jumpStrength) : null;
+        frozen.put(player.getUniqueId(), new Frozen(player.getWalkSpeed(), player.getFlySpeed(),
+                jump != null ? jump.getBaseValue() : Double.NaN, player.getLocation()));
+        player.setWalkSpeed(0f);
+        player.setFlySpeed(0f);
+        if (jump != null) {
+            jump.setBaseValue(0);
+        }
+    }
+
+    // 退出时同样需要调用，保证保存到玩家数据中的是原来的数值
+    void unfreeze(Player player) {
+        Frozen state = frozen.remove(player.getUniqueId());
+        if (state == null) return;
+
+        player.setWalkSpeed(state.walkSpeed > 0 ? state.walkSpeed : DEFAULT_WALK_SPEED);
+        player.setFlySpeed(state.flySpeed > 0 ? state.flySpeed : DEFAULT_FLY_SPEED);
+        AttributeInstance jump = jumpStrength != null ? player.getAttribute(jumpStrength) : null;
+        if (jump != null && !Double.isNaN(state.jumpStrength)) {
+            jump.setBaseValue(state.jumpStrength > 0 ? state.jumpStrength : DEFAULT_JUMP_STRENGTH);
+        }
+    }
+
+    void unfreezeAll(Iterable<? extends Player> online) {
+        for (Player player : online) {
+            unfreeze(player);
+        }
+        frozen.clear();
+    }
+
+    // 冻结时的位置；未冻结时返回 null
+    Location getAnchor(UUID playerId) {
+        Frozen state = frozen.get(playerId);
+        return state != null ? state.anchor : null;
+    }
+
+    // 被其他插件传送到别的世界后以新位置为准
+    void reanchor(UUID playerId, Location location) {
+        Frozen state = frozen.get(playerId);
+        if (state != null) {
+            state.anchor = location;
+        }
+    }
+
+    // 1.21.3 起键名为 jump_strength，之前为 generic.jump_strength；找不到时只冻结速度
+    private static Attribute resolveJumpStrength() {
+        try {
+            Attribute attribute = Registry.ATTRIBUTE.get(NamespacedKey.minecraft("jump_strength"));
+            if (attribute == null) {
+                attribute = Registry.ATTRIBUTE.get(NamespacedKey.minecraft("generic.jump_strength"));
+            }
+            return attribute;
+        } catch (RuntimeException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.keyauth;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+// 从配置解析出的不可变设置快照，重载时整体替换，热路径只读取一个 volatile 引用
+final class PluginSettings {
+
+    final int kickDelay;
+    final boolean autoUpdate;
+    final int updateHour;
+    final String webPath;
+    final Title promptTitle;
+    final Title successTitle;
+    final Title welcomeTitle;
+
+    private PluginSettings(ConfigurationSection config) {
+        this.kickDelay = config.getInt("kick-delay", 60);
+        this.autoUpdate = config.getBoolean("auto-update.enabled", true);
+        this.updateHour = config.getInt("auto-update.update-hour", 12);
+        this.webPath = config.getString("auto-update.web-path", "plugins/KeyAuth/web/key.txt");
+        this.promptTitle = new Title(config, "prompt", 10, 60, 10);
+        this.successTitle = new Title(config, "success", 10, 70, 20);
+        this.welcomeTitle = new Title(config, "welcome", 10, 40, 10);
+    }
+
+    static PluginSettings from(ConfigurationSection config) {
+        return new PluginSettings(config);
+    }
+
+    // 标题的淡入、停留、淡出时间（tick）
+    static final class Title {
+        final int fadeIn;
+        final int stay;
+        final int fadeOut;
+
+        private Title(ConfigurationSection config, String name, int fadeIn, int stay, int fadeOut) {
+            this.fadeIn = config.getInt("title." + name + "-fade-in", fadeIn);
+            this.stay = config.getInt("title." + name + "-stay", stay);
+            this.fadeOut = config.getInt("title." + name + "-fade-out", fadeOut);
+        }
+    }
+}
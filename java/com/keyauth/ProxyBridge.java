@@ -0,0 +1,62 @@
+package com.keyauth;
+
+import com.keyauth.proxy.NonceWindow;
+import com.keyauth.proxy.ProxyMessage;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.messaging.Messenger;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+
+import java.security.SecureRandom;
+
+// 子服一侧的群组服验证：接收代理的已验证断言，并在本服验证成功或密钥更新时通知代理
+class ProxyBridge implements PluginMessageListener {
+
+    private final KeyAuthPlugin plugin;
+    private final byte[] secret;
+    private final NonceWindow window;
+    private final SecureRandom random = new SecureRandom();
+
+    ProxyBridge(KeyAuthPlugin plugin, String secret, long maxMessageAgeMillis) {
+        this.plugin = plugin;
+        this.secret = ProxyMessage.secretOf(secret);
+        this.window = new NonceWindow(maxMessageAgeMillis);
+    }
+
+    void register() {
+        Messenger messenger = plugin.getServer().getMessenger();
+        messenger.registerOutgoingPluginChannel(plugin, ProxyMessage.CHANNEL);
+        messenger.registerIncomingPluginChannel(plugin, ProxyMessage.CHANNEL, this);
+    }
+
+    void unregister() {
+        Messenger messenger = plugin.getServer().getMessenger();
+        messenger.unregisterIncomingPluginChannel(plugin);
+        messenger.unregisterOutgoingPluginChannel(plugin);
+    }
+
+    @Override
+    public void onPluginMessageReceived(String channel, Player player, byte[] data) {
+        if (!ProxyMessage.CHANNEL.equals(channel)) return;
+
+        // 签名错误、玩家不符或重放的消息直接丢弃
+        ProxyMessage message = ProxyMessage.decode(secret, data);
+        if (message == null || message.getType() != ProxyMessage.Type.ASSERT) return;
+        if (!message.getPlayerId().equals(player.getUniqueId())) return;
+        if (!window.accept(message, System.currentTimeMillis())) return;
+
+        plugin.applyProxyVerification(player);
+    }
+
+    void sendVerified(Player player) {
+        send(player, ProxyMessage.Type.VERIFIED);
+    }
+
+    void sendRevoke(Player player) {
+        send(player, ProxyMessage.Type.REVOKE);
+    }
+
+    private void send(Player player, ProxyMessage.Type type) {
+        ProxyMessage message = new ProxyMessage(type, player.getUniqueId(), System.currentTimeMillis(), random.nextLong());
+        player.sendPluginMessage(plugin, ProxyMessage.CHANNEL, message.encode(secret));
+    }
+}
@@ -0,0 +1,164 @@
+package com.keyauth;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 密钥域的配置和玩家所属的域
+// 权限只在玩家加入（或重载域配置）时检查一次，之后按 UUID 查缓存；换世界时只查一次世界表
+final class RealmRegistry {
+
+    // 默认域在已验证集合中的名称
+    private static final String DEFAULT_REALM = "";
+
+    private volatile Map<String, KeyRealm> byName = Collections.emptyMap();
+    private volatile List<KeyRealm> byPermission = Collections.emptyList();
+    private volatile Map<String, KeyRealm> byWorld = Collections.emptyMap();
+    private final Map<UUID, Assignment> players = new ConcurrentHashMap<>();
+
+    private static final class Assignment {
+        // 按权限匹配到的域，优先于世界
+        final KeyRealm granted;
+        volatile KeyRealm current;
+        // 本次登录中已验证过的域，回到这些域时不再要求输入密钥
+        final Set<String> verified = ConcurrentHashMap.newKeySet();
+
+        Assignment(KeyRealm granted, KeyRealm current) {
+            this.granted = granted;
+            this.current = current;
+        }
+    }
+
+    // 按 realms 段重建全部域；缺少密钥的域生成初始密钥写回配置，返回是否需要保存配置
+    boolean configure(ConfigurationSection config, int defaultKickDelay, long now) {
+        Map<String, KeyRealm> names = new LinkedHashMap<>();
+        List<KeyRealm> permissions = new ArrayList<>();
+        Map<String, KeyRealm> worlds = new HashMap<>();
+        boolean generated = false;
+
+        ConfigurationSection section = config.getConfigurationSection("realms");
+        if (section != null) {
+            for (String name : section.getKeys(false)) {
+                ConfigurationSection realmConfig = section.getConfigurationSection(name);
+                if (realmConfig == null) continue;
+
+                KeyRealm realm = KeyRealm.from(name, realmConfig, defaultKickDelay, byName.get(name), now);
+                if (!realm.hasKey()) {
+                    realm.setKey(KeyAuthPlugin.generateKey());
+                    config.set(realm.configPath("key"), realm.getKey());
+                    generated = true;
+                }
+                names.put(name, realm);
+                if (realm.permission != null) {
+                    permissions.add(realm);
+                }
+                for (String world : realm.worlds) {
+                    // 同一世界只属于先声明的域
+                    worlds.putIfAbsent(world, realm);
+                }
+            }
+        }
+
+        this.byName = names;
+        this.byPermission = permissions;
+        this.byWorld = worlds;
+        return generated;
+    }
+
+    boolean isEmpty() {
+        return byName.isEmpty();
+    }
+
+    Collection<KeyRealm> all() {
+        return byName.values();
+    }
+
+    KeyRealm find(String name) {
+        return byName.get(name);
+    }
+
+    // 检查一次权限并缓存结果；返回 null 表示默认域
+    KeyRealm resolve(Player player, String world) {
+        if (byName.isEmpty()) {
+            players.remove(player.getUniqueId());
+            return null;
+        }
+
+        KeyRealm granted = null;
+        for (KeyRealm realm : byPermission) {
+            if (player.hasPermission(realm.permission)) {
+                granted = realm;
+                break;
+            }
+        }
+        KeyRealm current = granted != null ? granted : byWorld.get(world);
+        Assignment assignment = new Assignment(granted, current);
+        Assignment previous = players.put(player.getUniqueId(), assignment);
+        if (previous != null) {
+            // 重新确定所属域时保留仍然存在的域的验证记录
+            for (String name : previous.verified) {
+                if (name.equals(DEFAULT_REALM) || byName.containsKey(name)) {
+                    assignment.verified.add(name);
+                }
+            }
+        }
+        return current;
+    }
+
+    KeyRealm get(UUID playerId) {
+        Assignment assignment = players.get(playerId);
+        return assignment != null ? assignment.current : null;
+    }
+
+    // 按权限匹配的玩家不随世界变化
+    KeyRealm changeWorld(UUID playerId, String world) {
+        Assignment assignment = players.get(playerId);
+        if (assignment == null) return null;
+        if (assignment.granted == null) {
+            assignment.current = byWorld.get(world);
+        }
+        return assignment.current;
+    }
+
+    void markVerified(UUID playerId, KeyRealm realm) {
+        Assignment assignment = players.get(playerId);
+        if (assignment != null) {
+            assignment.verified.add(nameOf(realm));
+        }
+    }
+
+    boolean hasVerified(UUID playerId, KeyRealm realm) {
+        Assignment assignment = players.get(playerId);
+        return assignment != null && assignment.verified.contains(nameOf(realm));
+    }
+
+    // 域的密钥更新后，所有玩家在该域的验证记录失效，其他域不受影响
+    void revoke(KeyRealm realm) {
+        String name = nameOf(realm);
+        for (Assignment assignment : players.values()) {
+            assignment.verified.remove(name);
+        }
+    }
+
+    void forget(UUID playerId) {
+        players.remove(playerId);
+    }
+
+    void clear() {
+        players.clear();
+    }
+
+    private static String nameOf(KeyRealm realm) {
+        return realm != null ? realm.name : DEFAULT_REALM;
+    }
+}
@@ -0,0 +1,33 @@
+package com.keyauth;
+
+import java.util.Locale;
+
+// 启动各阶段的耗时，按顺序记录，完成后整体写入一行日志
+final class StartupProfile {
+
+    private final long start = System.nanoTime();
+    private final StringBuilder phases = new StringBuilder();
+    private long last = start;
+
+    void mark(String phase) {
+        long now = System.nanoTime();
+        if (phases.length() > 0) {
+            phases.append(", ");
+        }
+        phases.append(phase).append(' ').append(millis(now - last)).append("ms");
+        last = now;
+    }
+
+    String totalMillis() {
+        return millis(System.nanoTime() - start);
+    }
+
+    @Override
+    public String toString() {
+        return phases.toString();
+    }
+
+    static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,109 @@
+package com.keyauth;
+
+import com.keyauth.api.StatsFormat;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// 把验证记录快照流式写入文件：逐块读取、经固定大小的缓冲区写出，内存占用与记录数无关
+// 先写同目录的临时文件，完成后原子替换，读取方不会看到写了一半的文件
+final class StatsExporter {
+
+    private static final int MAGIC = 0x4B415653; // "KAVS"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte[] CSV_HEADER = "verified_at,duration_ms\n".getBytes(StandardCharsets.US_ASCII);
+
+    private StatsExporter() {
+    }
+
+    // 在调用线程上执行，只应在后台线程调用；返回写出的记录数
+    static int export(VerificationLog.Snapshot snapshot, Path target, StatsFormat format) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, "." + target.getFileName(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE)) {
+                if (format == StatsFormat.BINARY) {
+                    writeBinary(snapshot, out);
+                } else {
+                    writeCsv(snapshot, out);
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return snapshot.size();
+    }
+
+    // 读取二进制格式的文件并追加到尚未发布的 log 中，供启动时恢复统计；返回读到的记录数
+    static int restore(Path source, VerificationLog log) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(source), BUFFER_SIZE)) {
+            DataInputStream data = new DataInputStream(in);
+            if (data.readInt() != MAGIC) throw new IOException("不是验证统计文件: " + source);
+            int version = data.readInt();
+            if (version != VERSION) throw new IOException("不支持的验证统计版本: " + version);
+
+            long count = data.readLong();
+            int restored = 0;
+            try {
+                for (long i = 0; i < count; i++) {
+                    long verifiedAt = data.readLong();
+                    log.add(verifiedAt, data.readInt());
+                    restored++;
+                }
+            } catch (EOFException e) {
+                // 文件不完整时保留已读到的部分
+            }
+            return restored;
+        }
+    }
+
+    private static void writeBinary(VerificationLog.Snapshot snapshot, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeLong(snapshot.size());
+        snapshot.forEach((verifiedAt, duration) -> {
+            data.writeLong(verifiedAt);
+            data.writeInt(duration);
+        });
+        data.flush();
+    }
+
+    private static void writeCsv(VerificationLog.Snapshot snapshot, OutputStream out) throws IOException {
+        out.write(CSV_HEADER);
+        // 数字直接编码为 ASCII，每行不创建字符串
+        byte[] line = new byte[48];
+        snapshot.forEach((verifiedAt, duration) -> {
+            int length = appendDigits(line, 0, verifiedAt);
+            line[length++] = ',';
+            length = appendDigits(line, length, duration);
+            line[length++] = '\n';
+            out.write(line, 0, length);
+        });
+    }
+
+    // 只处理非负数：时间戳和耗时都不会为负
+    private static int appendDigits(byte[] buffer, int offset, long value) {
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) digits++;
+        int end = offset + digits;
+        for (int i = end - 1; i >= offset; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+}
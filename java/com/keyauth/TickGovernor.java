@@ -0,0 +1,179 @@
+package com.keyauth;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 统计插件每 tick 的耗时和服务器 TPS，负载过高时自动削减可选工作
+public class TickGovernor {
+
+    public enum Mode { NORMAL, DEGRADED, CRITICAL }
+
+    // 约 1 秒的指数平均
+    private static final double SMOOTHING = 0.05;
+
+    private final KeyAuthPlugin plugin;
+    private final Map<UUID, Long> lastNoticeTimes = new ConcurrentHashMap<>();
+
+    private volatile Mode mode = Mode.NORMAL;
+    private volatile double averageTickMillis = 50.0;
+    private volatile double averagePluginMillis;
+
+    // 以下字段只在主线程访问
+    private long tickPluginNanos;
+    private long lastTickNanos;
+    private int ticks;
+    private int healthyTicks;
+    private BukkitRunnable task;
+
+    private boolean enabled;
+    private double degradedTps;
+    private double criticalTps;
+    private double pluginBudgetMillis;
+    private int recoverTicks;
+
+    public TickGovernor(KeyAuthPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public void configure(ConfigurationSection config) {
+        this.enabled = config.getBoolean("governor.enabled", true);
+        this.degradedTps = config.getDouble("governor.degraded-tps", 18.0);
+        this.criticalTps = config.getDouble("governor.critical-tps", 15.0);
+        this.pluginBudgetMillis = config.getDouble("governor.plugin-budget-ms", 1.0);
+        this.recoverTicks = config.getInt("governor.recover-seconds", 10) * 20;
+
+        if (!enabled && mode != Mode.NORMAL) {
+            changeMode(Mode.NORMAL);
+        }
+    }
+
+    public void start() {
+        lastTickNanos = System.nanoTime();
+        task = new BukkitRunnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        };
+        task.runTaskTimer(plugin, 1L, 1L);
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        lastNoticeTimes.clear();
+    }
+
+    // 记录一段主线程上的插件工作耗时，start 为 System.nanoTime()
+    public void record(long startNanos) {
+        tickPluginNanos += System.nanoTime() - startNanos;
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        // 两次 tick 的间隔即服务器实际的 tick 时长（空闲时为 50ms）
+        double tickMillis = (now - lastTickNanos) / 1_000_000.0;
+        lastTickNanos = now;
+
+        averageTickMillis += (tickMillis - averageTickMillis) * SMOOTHING;
+        averagePluginMillis += (tickPluginNanos / 1_000_000.0 - averagePluginMillis) * SMOOTHING;
+        tickPluginNanos = 0;
+
+        if (!enabled) return;
+
+        Mode target = evaluate();
+        if (target.ordinal() > mode.ordinal()) {
+            // 负载升高时立即降级
+            healthyTicks = 0;
+            changeMode(target);
+        } else if (target.ordinal() < mode.ordinal()) {
+            // 负载恢复后需要持续一段时间才恢复，避免来回切换
+            if (++healthyTicks >= recoverTicks) {
+                healthyTicks = 0;
+                changeMode(target);
+            }
+        } else {
+            healthyTicks = 0;
+        }
+
+        if (++ticks % 1200 == 0) {
+            lastNoticeTimes.clear();
+        }
+    }
+
+    private Mode evaluate() {
+        double tps = getTps();
+        if (tps < criticalTps || averagePluginMillis > pluginBudgetMillis * 2) {
+            return Mode.CRITICAL;
+        }
+        if (tps < degradedTps || averagePluginMillis > pluginBudgetMillis) {
+            return Mode.DEGRADED;
+        }
+        return Mode.NORMAL;
+    }
+
+    private void changeMode(Mode target) {
+        Mode previous = mode;
+        mode = target;
+        plugin.getLogger().info(String.format("负载模式切换: %s -> %s (TPS %.1f, 插件耗时 %.3fms/tick)",
+                previous, target, getTps(), averagePluginMillis));
+
+        if (target == Mode.NORMAL) {
+            plugin.onGovernorRecovered();
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public double getTps() {
+        return Math.min(20.0, 1000.0 / Math.max(1.0, averageTickMillis));
+    }
+
+    public double getAverageTickMillis() {
+        return averageTickMillis;
+    }
+
+    public double getAveragePluginMillis() {
+        return averagePluginMillis;
+    }
+
+    // 标题和百分比只在正常模式下发送/计算
+    public boolean allowTitles() {
+        return mode == Mode.NORMAL;
+    }
+
+    public boolean allowPercentile() {
+        return mode == Mode.NORMAL;
+    }
+
+    // 负载较高时推迟网页导出
+    public boolean deferExports() {
+        return mode != Mode.NORMAL;
+    }
+
+    // 重复提示限流：降级时每名玩家 10 秒一次，严重时 30 秒一次
+    public boolean allowNotice(UUID playerId) {
+        if (mode == Mode.NORMAL) return true;
+
+        long now = System.currentTimeMillis();
+        long interval = mode == Mode.DEGRADED ? 10_000L : 30_000L;
+        Long last = lastNoticeTimes.get(playerId);
+        if (last != null && now - last < interval) {
+            return false;
+        }
+        lastNoticeTimes.put(playerId, now);
+        return true;
+    }
+
+    public void forget(UUID playerId) {
+        lastNoticeTimes.remove(playerId);
+    }
+}
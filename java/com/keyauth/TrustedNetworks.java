@@ -0,0 +1,163 @@
+package com.keyauth;
+
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.Player;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+// 受信任网络白名单：玩家连接时查询一次，命中的玩家直接视为已验证
+// 列表变化时在异步线程重建前缀树，期间继续使用旧树，构建完成后整体替换
+class TrustedNetworks {
+
+    private final KeyAuthPlugin plugin;
+    private volatile CidrTrie trie = CidrTrie.EMPTY;
+    private volatile boolean enabled;
+    // 每次配置变化加一，只有最新一次构建的结果会被采用
+    private int generation;
+    private long requested;
+
+    TrustedNetworks(KeyAuthPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    boolean isTrusted(Player player) {
+        if (!enabled) return false;
+        InetSocketAddress address = player.getAddress();
+        if (address == null || address.getAddress() == null) return false;
+        return trie.contains(address.getAddress());
+    }
+
+    int getRanges() {
+        return enabled ? trie.getRanges() : 0;
+    }
+
+    // 主线程调用：只读取配置和文件属性，源列表未变化时不做任何事
+    void configure(FileConfiguration config) {
+        this.enabled = config.getBoolean("trusted-networks.enabled", false);
+        if (!enabled) {
+            synchronized (this) {
+                generation++;
+                requested = 0;
+                trie = CidrTrie.EMPTY;
+            }
+            return;
+        }
+
+        List<String> inline = new ArrayList<>(config.getStringList("trusted-networks.ranges"));
+        String fileName = config.getString("trusted-networks.file", "");
+        File source = fileName == null || fileName.isEmpty() ? null : new File(plugin.getDataFolder(), fileName);
+        File cache = getCacheFile();
+        long signature = signature(inline, source);
+
+        int current;
+        synchronized (this) {
+            // 已加载或正在构建同一份列表
+            if (signature == requested) return;
+            requested = signature;
+            current = ++generation;
+        }
+
+        // 缓存文件与当前列表一致时直接映射，不需要重新解析
+        try {
+            CidrTrie mapped = cache.exists() ? CidrTrie.map(cache, signature) : null;
+            if (mapped != null) {
+                install(current, mapped, "缓存");
+                return;
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("无法读取受信任网络缓存，将重新构建: " + e.getMessage());
+        }
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> rebuild(current, inline, source, cache, signature));
+    }
+
+    private void rebuild(int current, List<String> inline, File source, File cache, long signature) {
+        long start = System.currentTimeMillis();
+        CidrTrie.Builder builder = new CidrTrie.Builder();
+        int invalid = 0;
+        String example = null;
+
+        for (String range : inline) {
+            if (!addRange(builder, range)) {
+                invalid++;
+                if (example == null) example = range;
+            }
+        }
+        if (source != null && source.isFile()) {
+            // 逐行读取，不把整个列表读入内存
+            try (BufferedReader reader = Files.newBufferedReader(source.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!addRange(builder, line)) {
+                        invalid++;
+                        if (example == null) example = line;
+                    }
+                }
+            } catch (IOException e) {
+                plugin.getLogger().warning("无法读取受信任网络列表: " + e.getMessage());
+                synchronized (this) {
+                    if (current == generation) requested = 0;
+                }
+                return;
+            }
+        }
+
+        CidrTrie built = builder.build(signature);
+        CidrTrie result = built;
+        try {
+            built.save(cache);
+            // 换成映射文件，节点数组不占用堆内存
+            CidrTrie mapped = CidrTrie.map(cache, signature);
+            if (mapped != null) result = mapped;
+        } catch (IOException e) {
+            plugin.getLogger().warning("无法写入受信任网络缓存，本次使用内存中的数据: " + e.getMessage());
+        }
+
+        if (invalid > 0) {
+            plugin.getLogger().warning("受信任网络列表中有 " + invalid + " 条无效记录，例如: " + example.trim());
+        }
+        install(current, result, "重建 " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    // 支持 # 注释和空行，格式错误返回 false
+    private static boolean addRange(CidrTrie.Builder builder, String line) {
+        int comment = line.indexOf('#');
+        String range = (comment >= 0 ? line.substring(0, comment) : line).trim();
+        return range.isEmpty() || builder.add(range);
+    }
+
+    private void install(int current, CidrTrie loaded, String source) {
+        synchronized (this) {
+            if (current != generation) return;
+            trie = loaded;
+        }
+        plugin.getLogger().info("受信任网络已加载（" + source + "）: " + loaded.getRanges() + " 个网段，" + loaded.getNodeCount() + " 个节点");
+    }
+
+    private File getCacheFile() {
+        return new File(plugin.getDataFolder(), "trusted-networks.bin");
+    }
+
+    // 由内联列表和文件大小、修改时间组成，任何一项变化都会触发重建
+    private static long signature(List<String> inline, File source) {
+        long hash = 1125899906842597L;
+        for (String range : inline) {
+            hash = 31 * hash + range.trim().hashCode();
+        }
+        if (source != null && source.isFile()) {
+            hash = 31 * hash + source.getAbsolutePath().hashCode();
+            hash = 31 * hash + source.length();
+            hash = 31 * hash + source.lastModified();
+        }
+        // 0 保留给空树
+        return hash == 0 ? 1 : hash;
+    }
+}
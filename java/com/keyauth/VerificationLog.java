@@ -0,0 +1,119 @@
+package com.keyauth;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// 验证记录的只追加存储：按固定大小的块保存原始数值，不装箱，追加时不复制已有数据
+// 只有主线程追加；写完一条后才发布新的条数，读取方按条数截取快照，无需加锁
+final class VerificationLog {
+
+    static final int CHUNK_SIZE = 1 << 16;
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // 每块约 768KB：验证完成的时间戳和验证耗时（毫秒）
+    private static final class Chunk {
+        final long[] verifiedAt = new long[CHUNK_SIZE];
+        final int[] durations = new int[CHUNK_SIZE];
+    }
+
+    private volatile Chunk[] chunks = new Chunk[8];
+    private volatile int size;
+    // 以下汇总值随追加更新，供 /keystats 直接读取
+    private volatile long totalDuration;
+    private volatile int fastest = Integer.MAX_VALUE;
+    private volatile int slowest;
+
+    // 只在主线程调用；尚未发布的新存储（例如启动时恢复）可以在任意单个线程中填充
+    void add(long verifiedAt, long duration) {
+        int index = size;
+        if (index == Integer.MAX_VALUE) return;
+        int value = (int) Math.min(Math.max(duration, 0), Integer.MAX_VALUE);
+
+        Chunk[] current = chunks;
+        int chunkIndex = index >>> CHUNK_SHIFT;
+        if (chunkIndex == current.length) {
+            // 只复制块引用，数据本身不动；旧快照仍持有旧数组
+            current = Arrays.copyOf(current, current.length * 2);
+            chunks = current;
+        }
+        Chunk chunk = current[chunkIndex];
+        if (chunk == null) {
+            chunk = new Chunk();
+            current[chunkIndex] = chunk;
+        }
+        chunk.verifiedAt[index & CHUNK_MASK] = verifiedAt;
+        chunk.durations[index & CHUNK_MASK] = value;
+
+        totalDuration += value;
+        if (value < fastest) fastest = value;
+        if (value > slowest) slowest = value;
+        // 最后写入条数，读取方看到新条数时一定能看到对应数据
+        size = index + 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getTotalDuration() {
+        return totalDuration;
+    }
+
+    int getFastest() {
+        return fastest;
+    }
+
+    int getSlowest() {
+        return slowest;
+    }
+
+    // 先读条数再读块数组，块数组只会变长，因此快照范围内的数据都已写好且不会再变
+    Snapshot snapshot() {
+        int count = size;
+        return new Snapshot(chunks, count);
+    }
+
+    interface SampleVisitor {
+        void visit(long verifiedAt, int duration) throws IOException;
+    }
+
+    // 某一时刻的一致视图，之后的追加不可见；可在任意线程遍历
+    static final class Snapshot {
+        private final Chunk[] chunks;
+        private final int size;
+
+        private Snapshot(Chunk[] chunks, int size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        int size() {
+            return size;
+        }
+
+        // 逐块顺序读取，不分配额外内存
+        void forEach(SampleVisitor visitor) throws IOException {
+            for (int start = 0; start < size; start += CHUNK_SIZE) {
+                Chunk chunk = chunks[start >>> CHUNK_SHIFT];
+                int length = Math.min(CHUNK_SIZE, size - start);
+                for (int i = 0; i < length; i++) {
+                    visitor.visit(chunk.verifiedAt[i], chunk.durations[i]);
+                }
+            }
+        }
+
+        // 耗时小于给定值的记录数
+        int countFasterThan(long duration) {
+            int count = 0;
+            for (int start = 0; start < size; start += CHUNK_SIZE) {
+                int[] durations = chunks[start >>> CHUNK_SHIFT].durations;
+                int length = Math.min(CHUNK_SIZE, size - start);
+                for (int i = 0; i < length; i++) {
+                    if (durations[i] < duration) count++;
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.keyauth.api;
+
+import org.bukkit.plugin.Plugin;
+
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * KeyAuth 对外提供的接口，通过 {@link KeyAuthProvider#get()} 获取。
+ */
+public interface KeyAuthAPI {
+
+    /**
+     * 玩家是否已通过验证（OP 在加入时视为已验证）。
+     * 无锁、无对象分配，可在任意线程的热路径中调用。
+     */
+    boolean isVerified(UUID playerId);
+
+    /**
+     * 下次密钥自动更新的时间戳（毫秒）。
+     */
+    long getNextUpdateTime();
+
+    /**
+     * 注册异步监听器，回调在 KeyAuth 的事件线程上执行，不占用主线程。
+     * owner 插件禁用时会自动移除它注册的监听器。
+     */
+    void registerAsyncListener(Plugin owner, KeyAuthListener listener);
+
+    void unregisterAsyncListener(KeyAuthListener listener);
+
+    void unregisterAsyncListeners(Plugin owner);
+
+    /**
+     * 把调用时刻已记录的验证统计流式导出到文件，在后台线程执行，内存占用与记录数无关。
+     * 完成后返回写出的记录条数；目标文件原子替换，不会出现写了一半的文件。
+     */
+    CompletableFuture<Integer> exportVerificationStats(Path target, StatsFormat format);
+}
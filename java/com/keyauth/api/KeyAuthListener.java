@@ -0,0 +1,18 @@
+package com.keyauth.api;
+
+import java.util.UUID;
+
+/**
+ * 异步监听器，所有回调都在 KeyAuth 的事件线程上执行，不能直接调用 Bukkit API。
+ */
+public interface KeyAuthListener {
+
+    default void onPlayerVerified(UUID playerId, String playerName, long verificationTime) {
+    }
+
+    default void onPlayerUnverified(UUID playerId) {
+    }
+
+    default void onKeyRotated(long nextUpdateTime) {
+    }
+}
@@ -0,0 +1,33 @@
+package com.keyauth.api;
+
+public final class KeyAuthProvider {
+
+    private static volatile KeyAuthAPI instance;
+
+    private KeyAuthProvider() {
+    }
+
+    /**
+     * 获取 KeyAuth 接口，KeyAuth 未启用时抛出 IllegalStateException。
+     */
+    public static KeyAuthAPI get() {
+        KeyAuthAPI api = instance;
+        if (api == null) {
+            throw new IllegalStateException("KeyAuth 尚未启用");
+        }
+        return api;
+    }
+
+    public static boolean isAvailable() {
+        return instance != null;
+    }
+
+    // 仅供 KeyAuth 自身在启用/禁用时调用
+    public static void register(KeyAuthAPI api) {
+        instance = api;
+    }
+
+    public static void unregister() {
+        instance = null;
+    }
+}
@@ -0,0 +1,31 @@
+package com.keyauth.api;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+/**
+ * 密钥自动更新后在主线程触发，此时所有非 OP 玩家的验证状态已被清除。
+ */
+public class KeyRotatedEvent extends Event {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final long nextUpdateTime;
+
+    public KeyRotatedEvent(long nextUpdateTime) {
+        this.nextUpdateTime = nextUpdateTime;
+    }
+
+    public long getNextUpdateTime() {
+        return nextUpdateTime;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
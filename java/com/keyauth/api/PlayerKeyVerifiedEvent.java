@@ -0,0 +1,34 @@
+package com.keyauth.api;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+
+/**
+ * 玩家通过密钥验证后在主线程触发。
+ */
+public class PlayerKeyVerifiedEvent extends PlayerEvent {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final long verificationTime;
+
+    public PlayerKeyVerifiedEvent(Player player, long verificationTime) {
+        super(player);
+        this.verificationTime = verificationTime;
+    }
+
+    // 从加入服务器到验证成功所用的时间（毫秒）；来自受信任网络或由代理确认时为 0
+    public long getVerificationTime() {
+        return verificationTime;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
@@ -0,0 +1,21 @@
+package com.keyauth.api;
+
+/**
+ * 验证统计的导出格式。
+ * CSV 每行为 verified_at,duration_ms（毫秒时间戳和验证耗时毫秒）；
+ * BINARY 为大端序：魔数 "KAVS"、版本号 int、记录数 long，之后每条为 long 时间戳 + int 耗时。
+ */
+public enum StatsFormat {
+    CSV("csv"),
+    BINARY("bin");
+
+    private final String extension;
+
+    StatsFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,25 @@
+package com.keyauth.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 未验证玩家的命令被拦截。
+ */
+@Name("keyauth.BlockedCommand")
+@Label("Blocked Command")
+@Category("KeyAuth")
+@StackTrace(false)
+public final class BlockedCommandEvent extends Event {
+
+    @Label("Player")
+    public String player;
+
+    @Label("Command")
+    @Description("只记录命令名，不记录参数")
+    public String command;
+}
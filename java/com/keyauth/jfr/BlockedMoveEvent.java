@@ -0,0 +1,23 @@
+package com.keyauth.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 未验证玩家的移动被拉回，只在实际拉回时记录，不是每次移动事件。
+ */
+@Name("keyauth.BlockedMove")
+@Label("Blocked Move")
+@Category("KeyAuth")
+@StackTrace(false)
+public final class BlockedMoveEvent extends Event {
+
+    @Label("Player")
+    public String player;
+
+    @Label("Freeze Mode")
+    public String mode;
+}
@@ -0,0 +1,29 @@
+package com.keyauth.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 在主线程上应用配置，/keyreload 为全量重载，文件监听为增量重载。
+ */
+@Name("keyauth.ConfigReload")
+@Label("Config Reload")
+@Category("KeyAuth")
+@StackTrace(false)
+public final class ConfigReloadEvent extends Event {
+
+    @Label("Source")
+    @Description("command 或 watcher")
+    public String source;
+
+    @Label("Changed Paths")
+    @Description("增量重载时变化的配置项数量，全量重载为 -1")
+    public int changedPaths;
+
+    @Label("Exported")
+    public boolean exported;
+}
@@ -0,0 +1,26 @@
+package com.keyauth.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 玩家加入时的验证处理，持续时间为加入事件处理器的耗时。
+ */
+@Name("keyauth.JoinPrompt")
+@Label("Join Prompt")
+@Category("KeyAuth")
+@Description("玩家加入时确定验证状态并发送提示")
+@StackTrace(false)
+public final class JoinPromptEvent extends Event {
+
+    @Label("Player")
+    public String player;
+
+    @Label("Outcome")
+    @Description("op、trusted、prompt 或 proxy-wait")
+    public String outcome;
+}
@@ -0,0 +1,33 @@
+package com.keyauth.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timestamp;
+
+/**
+ * 密钥更新在主线程上的处理，包括重新要求验证和导出。
+ */
+@Name("keyauth.KeyRotation")
+@Label("Key Rotation")
+@Category("KeyAuth")
+@StackTrace(false)
+public final class KeyRotationEvent extends Event {
+
+    @Label("Source")
+    @Description("local 为本服生成，sync 为采用共享目录中的密钥")
+    public String source;
+
+    @Label("Epoch")
+    public long epoch;
+
+    @Label("Players Reverified")
+    public int reverified;
+
+    @Label("Next Update")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    public long nextUpdate;
+}
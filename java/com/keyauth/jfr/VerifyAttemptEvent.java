@@ -0,0 +1,34 @@
+package com.keyauth.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 一次 /key 尝试，持续时间从提交到结果回到主线程，包含哈希推导和排队时间。
+ */
+@Name("keyauth.VerifyAttempt")
+@Label("Verify Attempt")
+@Category("KeyAuth")
+@Description("玩家提交密钥或一次性验证码")
+@StackTrace(false)
+public final class VerifyAttemptEvent extends Event {
+
+    @Label("Player")
+    public String player;
+
+    @Label("Outcome")
+    @Description("match、mismatch、code、busy、stale、pending 或 offline")
+    public String outcome;
+
+    @Label("Hashed")
+    public boolean hashed;
+
+    @Label("Time Since Join")
+    @Timespan(Timespan.MILLISECONDS)
+    public long sinceJoin;
+}
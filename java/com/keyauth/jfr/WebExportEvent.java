@@ -0,0 +1,26 @@
+package com.keyauth.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 写出 key.txt、key_simple.txt 和 key.html。
+ */
+@Name("keyauth.WebExport")
+@Label("Web Export")
+@Category("KeyAuth")
+@StackTrace(false)
+public final class WebExportEvent extends Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Hashed")
+    public boolean hashed;
+
+    @Label("Success")
+    public boolean success;
+}
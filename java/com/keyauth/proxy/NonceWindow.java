@@ -0,0 +1,30 @@
+package com.keyauth.proxy;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 防重放：只接受时间戳在窗口内、且窗口内没有出现过的随机数。
+ */
+public final class NonceWindow {
+
+    private final long windowMillis;
+    // 按接收顺序排列，过期的条目总在最前面
+    private final LinkedHashMap<Long, Long> seen = new LinkedHashMap<>();
+
+    public NonceWindow(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    public synchronized boolean accept(ProxyMessage message, long now) {
+        if (Math.abs(now - message.getTimestamp()) > windowMillis) return false;
+
+        Iterator<Map.Entry<Long, Long>> iterator = seen.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().getValue() <= windowMillis * 2) break;
+            iterator.remove();
+        }
+        return seen.putIfAbsent(message.getNonce(), now) == null;
+    }
+}
@@ -0,0 +1,103 @@
+package com.keyauth.proxy;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.UUID;
+
+/**
+ * 代理与子服之间的插件消息，使用共享密钥 HMAC-SHA256 签名。
+ * 不依赖 Bukkit，可直接打包进 Velocity/BungeeCord 插件。
+ */
+public final class ProxyMessage {
+
+    public static final String CHANNEL = "keyauth:verify";
+
+    private static final byte VERSION = 1;
+    private static final int BODY_BYTES = 1 + 1 + 16 + 8 + 8;
+    private static final int MAC_BYTES = 32;
+    public static final int LENGTH = BODY_BYTES + MAC_BYTES;
+
+    public enum Type {
+        // 代理 -> 子服：该玩家已在代理层通过验证
+        ASSERT,
+        // 子服 -> 代理：玩家在子服上输入密钥通过了验证
+        VERIFIED,
+        // 子服 -> 代理：密钥已更新，玩家需要重新验证
+        REVOKE
+    }
+
+    private final Type type;
+    private final UUID playerId;
+    private final long timestamp;
+    private final long nonce;
+
+    public ProxyMessage(Type type, UUID playerId, long timestamp, long nonce) {
+        this.type = type;
+        this.playerId = playerId;
+        this.timestamp = timestamp;
+        this.nonce = nonce;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getNonce() {
+        return nonce;
+    }
+
+    public byte[] encode(byte[] secret) {
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH);
+        buffer.put(VERSION);
+        buffer.put((byte) type.ordinal());
+        buffer.putLong(playerId.getMostSignificantBits());
+        buffer.putLong(playerId.getLeastSignificantBits());
+        buffer.putLong(timestamp);
+        buffer.putLong(nonce);
+        buffer.put(sign(secret, buffer.array(), BODY_BYTES));
+        return buffer.array();
+    }
+
+    // 签名不正确、版本或长度不对时返回 null
+    public static ProxyMessage decode(byte[] secret, byte[] data) {
+        if (data == null || data.length != LENGTH || data[0] != VERSION) return null;
+
+        byte[] expected = sign(secret, data, BODY_BYTES);
+        byte[] actual = new byte[MAC_BYTES];
+        System.arraycopy(data, BODY_BYTES, actual, 0, MAC_BYTES);
+        if (!MessageDigest.isEqual(expected, actual)) return null;
+
+        ByteBuffer buffer = ByteBuffer.wrap(data, 1, BODY_BYTES - 1);
+        int ordinal = buffer.get();
+        if (ordinal < 0 || ordinal >= Type.values().length) return null;
+        UUID playerId = new UUID(buffer.getLong(), buffer.getLong());
+        return new ProxyMessage(Type.values()[ordinal], playerId, buffer.getLong(), buffer.getLong());
+    }
+
+    public static byte[] secretOf(String secret) {
+        return secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] sign(byte[] secret, byte[] data, int length) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            mac.update(data, 0, length);
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("当前 Java 环境不支持 HmacSHA256", e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.keyauth.proxy;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 代理层的验证状态，与具体代理平台无关。
+ *
+ * Velocity/BungeeCord 插件只需接入四个钩子：
+ * 子服发来 {@link ProxyMessage#CHANNEL} 消息时调用 {@link #onBackendMessage}，返回 true 时拦截不再转发；
+ * 客户端发来同频道消息时用 {@link #isProtectedChannel} 判断并直接丢弃；
+ * 玩家连接到子服后调用 {@link #onServerConnected}，把返回的数据经同一频道发给该子服；
+ * 玩家断开代理时调用 {@link #onDisconnect}。
+ * BungeeCord 的接入见 bungee 源码目录中的 com.keyauth.bungee.KeyAuthBungee。
+ */
+public class ProxyVerifier {
+
+    private final byte[] secret;
+    private final long sessionMillis;
+    private final NonceWindow window;
+    private final SecureRandom random = new SecureRandom();
+    // 玩家 -> 在代理层记为已验证的时间
+    private final Map<UUID, Long> verified = new ConcurrentHashMap<>();
+
+    // sessionMillis 为 0 时验证状态保持到玩家断开代理
+    public ProxyVerifier(String secret, long sessionMillis, long maxMessageAgeMillis) {
+        if (secret == null || secret.length() < 16) {
+            throw new IllegalArgumentException("共享密钥至少需要 16 个字符");
+        }
+        this.secret = ProxyMessage.secretOf(secret);
+        this.sessionMillis = sessionMillis;
+        this.window = new NonceWindow(maxMessageAgeMillis);
+    }
+
+    public boolean isProtectedChannel(String channel) {
+        return ProxyMessage.CHANNEL.equals(channel);
+    }
+
+    public boolean isVerified(UUID playerId) {
+        Long since = verified.get(playerId);
+        if (since == null) return false;
+        if (sessionMillis > 0 && System.currentTimeMillis() - since > sessionMillis) {
+            verified.remove(playerId, since);
+            return false;
+        }
+        return true;
+    }
+
+    // playerId 为发出消息的连接所属玩家，消息中的玩家必须与之一致
+    public boolean onBackendMessage(String channel, UUID playerId, byte[] data) {
+        if (!isProtectedChannel(channel)) return false;
+
+        ProxyMessage message = ProxyMessage.decode(secret, data);
+        if (message == null || !message.getPlayerId().equals(playerId)) return true;
+        if (!window.accept(message, System.currentTimeMillis())) return true;
+
+        switch (message.getType()) {
+            case VERIFIED:
+                verified.put(playerId, System.currentTimeMillis());
+                break;
+            case REVOKE:
+                verified.remove(playerId);
+                break;
+            default:
+                break;
+        }
+        return true;
+    }
+
+    // 已验证时返回发给子服的断言，否则返回 null
+    public byte[] onServerConnected(UUID playerId) {
+        if (!isVerified(playerId)) return null;
+        return new ProxyMessage(ProxyMessage.Type.ASSERT, playerId, System.currentTimeMillis(), random.nextLong()).encode(secret);
+    }
+
+    public void onDisconnect(UUID playerId) {
+        verified.remove(playerId);
+    }
+}
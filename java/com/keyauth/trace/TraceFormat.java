@@ -0,0 +1,61 @@
+package com.keyauth.trace;
+
+/**
+ * 事件轨迹文件格式（大端序）：
+ * 文件头为 int 魔数 "KATR"、short 版本、long 录制开始的毫秒时间戳；
+ * 之后每条记录为 byte 类型、varlong 距上一条的微秒数、varint 玩家序号，再加各类型的负载：
+ * JOIN 为 byte 标志，MOVE 为三个 short 位移（1/1024 方块），COMMAND 为 varint 长度 + UTF-8 命令名，
+ * ATTEMPT 为 byte 结果，QUIT 没有负载。
+ */
+public final class TraceFormat {
+
+    public static final int MAGIC = 0x4B415452;
+    public static final short VERSION = 1;
+
+    public static final byte JOIN = 1;
+    public static final byte QUIT = 2;
+    public static final byte MOVE = 3;
+    public static final byte COMMAND = 4;
+    public static final byte ATTEMPT = 5;
+
+    public static final byte FLAG_OP = 1;
+
+    public static final byte OUTCOME_MATCH = 0;
+    public static final byte OUTCOME_MISMATCH = 1;
+    public static final byte OUTCOME_CODE = 2;
+    public static final byte OUTCOME_OTHER = 3;
+
+    public static final int MOVE_SCALE = 1024;
+    // 命令名超过该长度时截断，不记录参数
+    public static final int MAX_COMMAND_LENGTH = 32;
+
+    private TraceFormat() {
+    }
+
+    public static String typeName(byte type) {
+        switch (type) {
+            case JOIN:
+                return "join";
+            case QUIT:
+                return "quit";
+            case MOVE:
+                return "move";
+            case COMMAND:
+                return "command";
+            case ATTEMPT:
+                return "attempt";
+            default:
+                return "unknown";
+        }
+    }
+
+    // 超出 ±32 方块的位移按边界记录
+    static short encodeDelta(double delta) {
+        long scaled = Math.round(delta * MOVE_SCALE);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, scaled));
+    }
+
+    static double decodeDelta(short value) {
+        return value / (double) MOVE_SCALE;
+    }
+}
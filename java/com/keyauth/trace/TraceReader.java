@@ -0,0 +1,152 @@
+package com.keyauth.trace;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 顺序读取事件轨迹，每次 next() 把一条记录解码到当前字段，除命令名外不为每条记录分配对象。
+ * 录制被强行中断时文件末尾可能只有半条记录，读到这里视为结束。
+ */
+public final class TraceReader implements Closeable {
+
+    private final DataInputStream in;
+    private final long startedAt;
+    private final byte[] commandBuffer = new byte[TraceFormat.MAX_COMMAND_LENGTH * 3];
+
+    private byte type;
+    private long timeMicros;
+    private int session;
+    private byte flags;
+    private byte outcome;
+    private double dx;
+    private double dy;
+    private double dz;
+    private String command;
+    private boolean truncated;
+
+    public TraceReader(Path file) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024));
+        try {
+            if (in.readInt() != TraceFormat.MAGIC) {
+                throw new IOException("不是 KeyAuth 事件轨迹文件: " + file);
+            }
+            short version = in.readShort();
+            if (version != TraceFormat.VERSION) {
+                throw new IOException("不支持的事件轨迹版本: " + version);
+            }
+            this.startedAt = in.readLong();
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    public boolean next() throws IOException {
+        int first = in.read();
+        if (first < 0) return false;
+
+        try {
+            type = (byte) first;
+            timeMicros += readVarLong();
+            session = readVarInt();
+            switch (type) {
+                case TraceFormat.JOIN:
+                    flags = in.readByte();
+                    break;
+                case TraceFormat.MOVE:
+                    dx = TraceFormat.decodeDelta(in.readShort());
+                    dy = TraceFormat.decodeDelta(in.readShort());
+                    dz = TraceFormat.decodeDelta(in.readShort());
+                    break;
+                case TraceFormat.COMMAND:
+                    int length = readVarInt();
+                    if (length > commandBuffer.length) throw new IOException("命令名过长: " + length);
+                    in.readFully(commandBuffer, 0, length);
+                    command = new String(commandBuffer, 0, length, StandardCharsets.UTF_8);
+                    break;
+                case TraceFormat.ATTEMPT:
+                    outcome = in.readByte();
+                    break;
+                case TraceFormat.QUIT:
+                    break;
+                default:
+                    throw new IOException("未知的记录类型: " + type);
+            }
+            return true;
+        } catch (EOFException e) {
+            truncated = true;
+            return false;
+        }
+    }
+
+    // 录制开始的毫秒时间戳
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    // 距录制开始的微秒数
+    public long getTimeMicros() {
+        return timeMicros;
+    }
+
+    public int getSession() {
+        return session;
+    }
+
+    public boolean isOp() {
+        return (flags & TraceFormat.FLAG_OP) != 0;
+    }
+
+    public byte getOutcome() {
+        return outcome;
+    }
+
+    public double getDx() {
+        return dx;
+    }
+
+    public double getDy() {
+        return dy;
+    }
+
+    public double getDz() {
+        return dz;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private int readVarInt() throws IOException {
+        return (int) readVarLong();
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("无效的变长整数");
+    }
+}
@@ -0,0 +1,291 @@
+package com.keyauth.trace;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * 事件轨迹录制：主线程只把事件编码进预先分配的缓冲区，写满或定时交给写出线程落盘。
+ * 写出跟不上时丢弃事件并计数，不会阻塞主线程；只在开启录制时注册为监听器。
+ */
+public final class TraceRecorder implements Listener {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int BUFFER_COUNT = 4;
+    // 单条记录的最大长度：类型、时间差、玩家序号和最长的命令名
+    private static final int MAX_RECORD = 1 + 10 + 5 + 5 + TraceFormat.MAX_COMMAND_LENGTH * 3;
+    private static final ByteBuffer STOP = ByteBuffer.allocate(0);
+
+    private final Path file;
+    private final long maxBytes;
+    private final Logger logger;
+    // 达到大小上限时在主线程调用，由插件注销监听器并释放录制器
+    private final Consumer<TraceRecorder> onLimit;
+    private final FileChannel channel;
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(BUFFER_COUNT);
+    private final BlockingQueue<ByteBuffer> full = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final long startNanos = System.nanoTime();
+
+    // 以下字段只在主线程访问
+    private final Map<UUID, Integer> sessions = new HashMap<>();
+    private ByteBuffer current;
+    private int nextSession;
+    private long lastMicros;
+    private long handedOff;
+    private long records;
+    private long dropped;
+    private boolean stopped;
+
+    private volatile boolean failed;
+
+    private TraceRecorder(Path file, long maxBytes, Logger logger, Consumer<TraceRecorder> onLimit, FileChannel channel) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.logger = logger;
+        this.onLimit = onLimit;
+        this.channel = channel;
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            free.add(ByteBuffer.allocate(BUFFER_SIZE));
+        }
+        this.writer = new Thread(this::drain, "KeyAuth-TraceWriter");
+        this.writer.setDaemon(true);
+    }
+
+    public static TraceRecorder start(Path file, long maxBytes, Logger logger, Consumer<TraceRecorder> onLimit) throws IOException {
+        Files.createDirectories(file.getParent());
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(14);
+            header.putInt(TraceFormat.MAGIC).putShort(TraceFormat.VERSION).putLong(System.currentTimeMillis()).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        TraceRecorder recorder = new TraceRecorder(file, maxBytes, logger, onLimit, channel);
+        recorder.writer.start();
+        return recorder;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        if (stopped) return;
+        session(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        Integer session = sessions.remove(event.getPlayer().getUniqueId());
+        if (session != null) {
+            begin(TraceFormat.QUIT, session);
+        }
+    }
+
+    // 最低优先级，在验证拦截修改目标位置之前记录客户端发来的位移
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        if (stopped) return;
+        Location from = event.getFrom();
+        Location to = event.getTo();
+        if (to == null) return;
+
+        ByteBuffer buffer = begin(TraceFormat.MOVE, session(event.getPlayer()));
+        if (buffer == null) return;
+        buffer.putShort(TraceFormat.encodeDelta(to.getX() - from.getX()));
+        buffer.putShort(TraceFormat.encodeDelta(to.getY() - from.getY()));
+        buffer.putShort(TraceFormat.encodeDelta(to.getZ() - from.getZ()));
+    }
+
+    // 只记录命令名，不记录参数；/key 由 recordAttempt 记录结果
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerCommand(PlayerCommandPreprocessEvent event) {
+        if (stopped) return;
+        String message = event.getMessage();
+        int end = message.indexOf(' ');
+        if (end < 0) end = message.length();
+        String name = message.substring(message.startsWith("/") ? 1 : 0, Math.min(end, TraceFormat.MAX_COMMAND_LENGTH + 1)).toLowerCase(Locale.ROOT);
+        if (name.equals("key")) return;
+
+        ByteBuffer buffer = begin(TraceFormat.COMMAND, session(event.getPlayer()));
+        if (buffer == null) return;
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        putVarInt(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    // 主线程调用；outcome 与 VerifyAttemptEvent 的结果相同
+    public void recordAttempt(Player player, String outcome) {
+        Integer session = sessions.get(player.getUniqueId());
+        if (session == null) return;
+
+        ByteBuffer buffer = begin(TraceFormat.ATTEMPT, session);
+        if (buffer == null) return;
+        buffer.put(outcomeOf(outcome));
+    }
+
+    // 主线程定时调用，让低流量时的记录也能及时落盘
+    public void flush() {
+        ByteBuffer buffer = current;
+        if (buffer != null && buffer.position() > 0) {
+            current = null;
+            handOff(buffer);
+        }
+    }
+
+    public void stop() {
+        if (stopped) return;
+        flush();
+        stopped = true;
+        sessions.clear();
+        full.offer(STOP);
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("事件轨迹录制已停止: " + file.getFileName() + "，" + records + " 条记录，" + handedOff + " 字节，丢弃 " + dropped + " 条");
+    }
+
+    // 第一次出现的玩家先写一条加入记录，例如开始录制时已在线的玩家
+    private int session(Player player) {
+        Integer session = sessions.get(player.getUniqueId());
+        if (session != null) return session;
+
+        int id = nextSession++;
+        sessions.put(player.getUniqueId(), id);
+        ByteBuffer buffer = begin(TraceFormat.JOIN, id);
+        if (buffer != null) {
+            buffer.put(player.isOp() ? TraceFormat.FLAG_OP : 0);
+        }
+        return id;
+    }
+
+    // 写入记录头并返回缓冲区；没有空闲缓冲区或已停止时返回 null，本条记录丢弃
+    private ByteBuffer begin(byte type, int session) {
+        if (stopped) return null;
+
+        ByteBuffer buffer = current;
+        if (buffer == null || buffer.remaining() < MAX_RECORD) {
+            if (buffer != null) {
+                handOff(buffer);
+            }
+            buffer = free.poll();
+            current = buffer;
+            if (buffer == null || stopped) {
+                dropped++;
+                return null;
+            }
+        }
+
+        long micros = (System.nanoTime() - startNanos) / 1000;
+        buffer.put(type);
+        putVarLong(buffer, micros - lastMicros);
+        putVarInt(buffer, session);
+        lastMicros = micros;
+        records++;
+        return buffer;
+    }
+
+    private void handOff(ByteBuffer buffer) {
+        buffer.flip();
+        handedOff += buffer.remaining();
+        full.offer(buffer);
+        if (handedOff >= maxBytes && !stopped) {
+            stopped = true;
+            current = null;
+            sessions.clear();
+            logger.warning("事件轨迹已达到大小上限，停止录制: " + file.getFileName());
+            onLimit.accept(this);
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                ByteBuffer buffer = full.take();
+                if (buffer == STOP) break;
+                if (!failed) {
+                    try {
+                        while (buffer.hasRemaining()) {
+                            channel.write(buffer);
+                        }
+                    } catch (IOException e) {
+                        failed = true;
+                        logger.warning("无法写入事件轨迹: " + e.getMessage());
+                    }
+                }
+                buffer.clear();
+                free.offer(buffer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // 已经写出的部分仍可回放
+            }
+        }
+    }
+
+    private static byte outcomeOf(String outcome) {
+        switch (outcome) {
+            case "match":
+                return TraceFormat.OUTCOME_MATCH;
+            case "mismatch":
+            case "stale":
+                return TraceFormat.OUTCOME_MISMATCH;
+            case "code":
+                return TraceFormat.OUTCOME_CODE;
+            default:
+                return TraceFormat.OUTCOME_OTHER;
+        }
+    }
+
+    private static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}